@@ -0,0 +1,109 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vergleicht {@link ContentNormalizer} mit der früheren Kette aus {@code replaceAll}-Aufrufen
+ * in {@code WordPressService.processWordPressContent}. Eine Operation bereitet alle Beispielartikel
+ * aus {@code wordpress-posts.json} auf (Inhalt, Auszug und Titel), wie es {@code reformatArticle} tut.
+ *
+ * <p>Ausführen mit {@code mvn -Pjmh test-compile exec:exec}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentNormalizerBenchmark {
+
+    private String[] contents;
+    private String[] excerpts;
+    private String[] titles;
+
+    @Setup
+    public void loadPosts() throws IOException {
+        List<Map<String, String>> posts;
+        try (InputStream in = ContentNormalizerBenchmark.class.getResourceAsStream("/wordpress-posts.json")) {
+            posts = new ObjectMapper().readValue(in, new TypeReference<List<Map<String, String>>>() {});
+        }
+        contents = new String[posts.size()];
+        excerpts = new String[posts.size()];
+        titles = new String[posts.size()];
+        for (int i = 0; i < posts.size(); i++) {
+            contents[i] = posts.get(i).get("content");
+            excerpts[i] = posts.get(i).get("excerpt");
+            titles[i] = posts.get(i).get("title");
+
+            // Nur gleiche Ergebnisse lassen sich vergleichen
+            for (String text : new String[] {contents[i], excerpts[i]}) {
+                if (!ContentNormalizer.normalize(text).equals(processWordPressContent(text))) {
+                    throw new IllegalStateException("Abweichendes Ergebnis für Beispielartikel " + i);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        for (int i = 0; i < contents.length; i++) {
+            blackhole.consume(ContentNormalizer.normalize(contents[i]));
+            blackhole.consume(ContentNormalizer.normalize(excerpts[i]));
+            blackhole.consume(ContentNormalizer.stripTags(titles[i]));
+        }
+    }
+
+    @Benchmark
+    public void replaceAllChain(Blackhole blackhole) {
+        for (int i = 0; i < contents.length; i++) {
+            blackhole.consume(processWordPressContent(contents[i]));
+            blackhole.consume(processWordPressContent(excerpts[i]));
+            blackhole.consume(titles[i].replaceAll("<[^>]+>", ""));
+        }
+    }
+
+    // Unverändert aus WordPressService vor der Umstellung auf ContentNormalizer
+    private static String processWordPressContent(String content) {
+        if (content == null) return "";
+
+        String processedContent = content;
+
+        processedContent = processedContent.replaceAll("\\[&hellip;\\]", "");
+        processedContent = processedContent.replaceAll("\\[…\\]", "");
+        processedContent = processedContent.replaceAll("\\[&#8230;\\]", "");
+
+        if (!processedContent.contains("</p>") && processedContent.contains("<p>")) {
+            processedContent += "</p>";
+        }
+
+        processedContent = processedContent.replaceAll("<a class=\"more-link\"[^>]*>.*?</a>", "");
+        processedContent = processedContent.replaceAll("\\(Passwortgeschützer Inhalt\\)", "");
+        processedContent = processedContent.replaceAll("&hellip;", "...");
+        processedContent = processedContent.replaceAll("\\[\\/?[^\\]]+\\]", "");
+
+        if (processedContent.endsWith("...") || processedContent.endsWith("…")) {
+            processedContent = processedContent.replaceAll("\\.\\.$", "");
+            processedContent = processedContent.replaceAll("…$", "");
+        }
+
+        return processedContent;
+    }
+}
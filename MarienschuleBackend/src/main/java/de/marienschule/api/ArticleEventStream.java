@@ -0,0 +1,417 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events für neue, geänderte und gelöschte Artikel.
+ * Die Verbindungen laufen über Servlet-Async ({@link SseEmitter}) und belegen im Leerlauf
+ * keinen Thread. Ein einzelner Thread vergibt die Ereignis-IDs, führt den Puffer zum Nachholen
+ * nach {@code Last-Event-ID} und legt jedes Ereignis in die begrenzte Warteschlange jedes Clients;
+ * jedes Ereignis wird nur einmal serialisiert. Geschrieben wird von einem kleinen Pool von
+ * Sende-Threads, pro Client höchstens einer gleichzeitig, sodass die Reihenfolge je Client
+ * erhalten bleibt und ein langsamer Client nur seinen eigenen Sende-Thread aufhält.
+ * <p>
+ * Läuft die Warteschlange eines Clients über oder hängt ein Schreibvorgang länger als
+ * {@link #SEND_TIMEOUT_MILLIS} (geprüft bei jedem Heartbeat), wird der Client abgemeldet und
+ * holt nach dem Neuverbinden nach. Abbrechen lässt sich ein hängender Schreibvorgang nicht: er belegt seinen Sende-Thread,
+ * bis Tomcat ihn nach {@code server.tomcat.connection-timeout} abbricht. Erst wenn alle
+ * Sende-Threads so festhängen, verzögern sich die Ereignisse für alle übrigen Clients.
+ */
+final class ArticleEventStream {
+
+    // Ohne Ablauf würden abgebrochene Verbindungen erst beim nächsten Schreiben bemerkt;
+    // EventSource verbindet sich nach dem Ablauf selbst neu
+    private static final long EMITTER_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final long RECONNECT_MILLIS = 5000;
+    private static final int REPLAY_SIZE = 100;
+    private static final int SENDER_THREADS = 4;
+    // Platz für den ganzen Nachhol-Puffer; Ereignisse kommen höchstens einmal pro Refresh,
+    // so viele staut also nur ein hängender Client auf
+    private static final int SUBSCRIBER_QUEUE_SIZE = REPLAY_SIZE + 2;
+    private static final long SEND_TIMEOUT_MILLIS = 10_000;
+    // Gleichartige Fehler höchstens einmal pro Minute protokollieren
+    private static final long ERROR_LOG_INTERVAL_MILLIS = 60_000;
+
+    // Unterscheidet die Ereignis-IDs verschiedener Serverläufe, da die Zählung bei 1 beginnt
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ObjectMapper objectMapper;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Nur auf dem Verteiler-Thread verwendet
+    private final Deque<StreamEvent> replay = new ArrayDeque<>();
+    private long sequence;
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "article-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService senders;
+
+    private final AtomicLong eventsPublished = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong heartbeats = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong slowDropped = new AtomicLong();
+    private final AtomicLong lastErrorLog = new AtomicLong();
+    private final AtomicLong suppressedErrors = new AtomicLong();
+
+    ArticleEventStream(ObjectMapper objectMapper, int heartbeatSeconds) {
+        this.objectMapper = objectMapper;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(SENDER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "article-events-send-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long interval = Math.max(1, heartbeatSeconds);
+        dispatcher.scheduleAtFixedRate(this::sendHeartbeat, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Meldet einen Client an. Mit {@code lastEventId} werden die verpassten Ereignisse
+     * nachgeliefert; liegen sie nicht mehr vor, bekommt der Client ein {@code reset}-Ereignis
+     * und sollte die Artikelliste neu laden.
+     */
+    SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MILLIS);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        try {
+            dispatcher.execute(() -> {
+                subscriber.enqueue(SseEmitter.event().reconnectTime(RECONNECT_MILLIS).comment("connected"), null);
+                if (lastEventId != null && !lastEventId.isBlank()) {
+                    resume(subscriber, lastEventId.trim());
+                }
+                subscribers.add(subscriber);
+                schedule(subscriber);
+            });
+        } catch (RejectedExecutionException e) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private void resume(Subscriber subscriber, String lastEventId) {
+        long lastSequence = parseSequence(lastEventId);
+        StreamEvent oldest = replay.peekFirst();
+        boolean complete = lastSequence >= 0 && lastSequence <= sequence
+            && (oldest == null ? lastSequence == sequence : lastSequence >= oldest.sequence - 1);
+        if (!complete) {
+            resets.incrementAndGet();
+            subscriber.enqueue(SseEmitter.event().id(eventId(sequence)).name("reset").data("{}"), null);
+            return;
+        }
+
+        for (StreamEvent event : replay) {
+            if (event.sequence > lastSequence) {
+                subscriber.enqueue(event.builder(), replayed);
+            }
+        }
+    }
+
+    private long parseSequence(String lastEventId) {
+        int separator = lastEventId.indexOf(':');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return epoch + ":" + sequence;
+    }
+
+    /**
+     * Vergleicht zwei Snapshots und verteilt die Änderungen, sofern es welche gibt.
+     */
+    void publish(WordPressService.ArticleSnapshot previous, WordPressService.ArticleSnapshot next) {
+        List<Integer> added = new ArrayList<>();
+        List<Integer> changed = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        for (WordPressService.Article article : next.getArticles()) {
+            WordPressService.Article old = previous.getArticle(article.getId());
+            if (old == null) {
+                added.add(article.getId());
+            } else if (!Objects.equals(old.getModified(), article.getModified())
+                    || !Objects.equals(old.getCachedImagePath(), article.getCachedImagePath())) {
+                changed.add(article.getId());
+            }
+        }
+        for (WordPressService.Article article : previous.getArticles()) {
+            if (next.getArticle(article.getId()) == null) {
+                removed.add(article.getId());
+            }
+        }
+        if (added.isEmpty() && changed.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("version", next.getVersion());
+        payload.put("added", added);
+        payload.put("changed", changed);
+        payload.put("removed", removed);
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            logError("Error serializing article event: " + e.getMessage());
+            return;
+        }
+
+        eventsPublished.incrementAndGet();
+        try {
+            dispatcher.execute(() -> broadcast(data));
+        } catch (RejectedExecutionException e) {
+            // Beim Herunterfahren
+        }
+    }
+
+    private void broadcast(String data) {
+        StreamEvent event = new StreamEvent(++sequence, data);
+        replay.addLast(event);
+        while (replay.size() > REPLAY_SIZE) {
+            replay.removeFirst();
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.enqueue(event.builder(), eventsSent)) {
+                schedule(subscriber);
+            } else {
+                dropSlow(subscriber, "event queue full");
+            }
+        }
+    }
+
+    /**
+     * Heartbeats nur an Clients ohne ausstehende Ereignisse; dabei werden Clients abgemeldet,
+     * deren Schreibvorgang zu lange hängt.
+     */
+    private void sendHeartbeat() {
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            long sendingSince = subscriber.sendingSince;
+            if (sendingSince != 0 && now - sendingSince > SEND_TIMEOUT_MILLIS) {
+                dropSlow(subscriber, "send blocked for " + (now - sendingSince) + " ms");
+            } else if (subscriber.isIdle()
+                    && subscriber.enqueue(SseEmitter.event().comment("heartbeat"), heartbeats)) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            // Beim Herunterfahren
+            subscriber.draining.set(false);
+        }
+    }
+
+    /**
+     * Schreibt die Warteschlange eines Clients auf einem Sende-Thread leer.
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            Outgoing next;
+            while (!subscriber.closed && (next = subscriber.poll()) != null) {
+                subscriber.sendingSince = System.currentTimeMillis();
+                boolean sent = send(subscriber, next.event);
+                subscriber.sendingSince = 0;
+                if (!sent) {
+                    return;
+                }
+                if (next.counter != null) {
+                    next.counter.incrementAndGet();
+                }
+            }
+        } finally {
+            subscriber.draining.set(false);
+        }
+
+        if (subscriber.closed) {
+            // Erst hier schließen: complete() wartet auf einen laufenden Schreibvorgang
+            subscriber.complete();
+        } else if (!subscriber.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client ist weg; Spring schließt die Anfrage, wir vergessen den Emitter
+            subscribers.remove(subscriber);
+            subscriber.closed = true;
+            dropped.incrementAndGet();
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Meldet einen zu langsamen Client ab, ohne auf ihn zu warten. Geschlossen wird die
+     * Verbindung vom Sende-Thread, sobald dessen Schreibvorgang zurückkehrt.
+     */
+    private void dropSlow(Subscriber subscriber, String reason) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.closed = true;
+        slowDropped.incrementAndGet();
+        logError("Dropping slow article event subscriber: " + reason);
+        schedule(subscriber);
+    }
+
+    private void logError(String message) {
+        long now = System.currentTimeMillis();
+        long last = lastErrorLog.get();
+        if (now - last < ERROR_LOG_INTERVAL_MILLIS || !lastErrorLog.compareAndSet(last, now)) {
+            suppressedErrors.incrementAndGet();
+            return;
+        }
+        long suppressed = suppressedErrors.getAndSet(0);
+        System.err.println(suppressed == 0 ? message : message + " (" + suppressed + " more suppressed)");
+    }
+
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("subscribers", subscribers.size());
+        metrics.put("eventsPublished", eventsPublished.get());
+        metrics.put("eventsSent", eventsSent.get());
+        metrics.put("replayed", replayed.get());
+        metrics.put("resets", resets.get());
+        metrics.put("heartbeats", heartbeats.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("slowDropped", slowDropped.get());
+        metrics.put("suppressedErrors", suppressedErrors.get());
+        return metrics;
+    }
+
+    void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.closed = true;
+            subscriber.complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * Ein angemeldeter Client mit seiner Warteschlange. Befüllt wird sie nur vom Verteiler-Thread,
+     * geleert von höchstens einem Sende-Thread zur Zeit.
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<Outgoing> outbox = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        // Beginn des laufenden Schreibvorgangs, 0 im Leerlauf
+        private volatile long sendingSince;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Reiht ein Ereignis ein; {@code false}, wenn die Warteschlange voll ist.
+         * {@code counter} wird nach dem erfolgreichen Senden erhöht.
+         */
+        boolean enqueue(SseEmitter.SseEventBuilder event, AtomicLong counter) {
+            if (queued.get() >= SUBSCRIBER_QUEUE_SIZE) {
+                return false;
+            }
+            queued.incrementAndGet();
+            outbox.add(new Outgoing(event, counter));
+            return true;
+        }
+
+        Outgoing poll() {
+            Outgoing next = outbox.poll();
+            if (next != null) {
+                queued.decrementAndGet();
+            }
+            return next;
+        }
+
+        boolean isEmpty() {
+            return queued.get() == 0;
+        }
+
+        boolean isIdle() {
+            return sendingSince == 0 && isEmpty();
+        }
+
+        void complete() {
+            if (completed.compareAndSet(false, true)) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private static final class Outgoing {
+        private final SseEmitter.SseEventBuilder event;
+        private final AtomicLong counter;
+
+        private Outgoing(SseEmitter.SseEventBuilder event, AtomicLong counter) {
+            this.event = event;
+            this.counter = counter;
+        }
+    }
+
+    private final class StreamEvent {
+        private final long sequence;
+        private final String data;
+
+        private StreamEvent(long sequence, String data) {
+            this.sequence = sequence;
+            this.data = data;
+        }
+
+        SseEmitter.SseEventBuilder builder() {
+            return SseEmitter.event().id(eventId(sequence)).name("articles").data(data);
+        }
+    }
+}
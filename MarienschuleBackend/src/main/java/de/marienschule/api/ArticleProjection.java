@@ -0,0 +1,179 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Eine Auswahl von Artikelfeldern für die Artikelliste, einmal pro Snapshot serialisiert.
+ * Jeder Artikel liegt als fertiges JSON-Fragment vor; die vollständige Liste und einzelne
+ * Seiten werden daraus nur noch zusammengesetzt. Fragmente unveränderter Artikel
+ * (dieselbe Instanz) werden aus der Projektion des vorigen Snapshots übernommen.
+ */
+final class ArticleProjection {
+
+    // Standardform der Liste: der vollständige Artikel, wie ihn die iOS-App erwartet
+    static final Set<String> FULL_FIELDS = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(
+        "id", "date", "modified", "title", "content", "excerpt", "link", "featuredMedia", "featuredMediaUrl",
+        "cachedImagePath", "imageVariants")));
+
+    // view=summary: alles, was der Feed braucht, ohne den HTML-Inhalt
+    static final Set<String> SUMMARY_FIELDS = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(
+        "id", "date", "modified", "title", "excerpt", "link", "featuredMediaUrl", "cachedImagePath", "imageVariants")));
+
+    private static final String SUMMARY_VIEW = "summary";
+    private static final String FULL_VIEW = "full";
+
+    private static final String MESSAGE = "Artikel erfolgreich geladen";
+
+    private final List<WordPressService.Article> articles;
+    private final byte[][] fragments;
+    private final WordPressService.CachedResponse listResponse;
+
+    private ArticleProjection(List<WordPressService.Article> articles, byte[][] fragments,
+                              WordPressService.CachedResponse listResponse) {
+        this.articles = articles;
+        this.fragments = fragments;
+        this.listResponse = listResponse;
+    }
+
+    /**
+     * Liest die Parameter {@code fields=} und {@code view=} als Menge von Feldnamen, {@code id} ist
+     * immer dabei. Ohne beide wird der vollständige Artikel geliefert, {@code view=summary} lässt
+     * den Inhalt weg; eine explizite Feldauswahl hat Vorrang vor {@code view}.
+     *
+     * @throws IllegalArgumentException bei unbekannten Feldern oder Ansichten
+     */
+    static Set<String> parseFields(String fields, String view) {
+        if (fields == null || fields.isBlank()) {
+            if (view == null || view.isBlank() || FULL_VIEW.equals(view)) {
+                return FULL_FIELDS;
+            }
+            if (SUMMARY_VIEW.equals(view)) {
+                return SUMMARY_FIELDS;
+            }
+            throw new IllegalArgumentException("Unbekannte Ansicht: " + view);
+        }
+
+        Set<String> selected = new TreeSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!FULL_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unbekanntes Feld: " + name);
+            }
+            selected.add(name);
+        }
+        return Collections.unmodifiableSet(selected);
+    }
+
+    static ArticleProjection build(List<WordPressService.Article> articles, Set<String> fields,
+                                   ObjectMapper objectMapper, ResponseCompression compression)
+            throws JsonProcessingException {
+        return build(articles, fields, null, objectMapper, compression);
+    }
+
+    /**
+     * Wie {@link #build(List, Set, ObjectMapper, ResponseCompression)}, übernimmt aber aus
+     * {@code previous} (gleiche Feldauswahl) die Fragmente aller Artikel, die als dieselbe Instanz
+     * noch vorkommen. Sind Artikel und Reihenfolge unverändert, wird {@code previous} selbst geliefert.
+     */
+    static ArticleProjection build(List<WordPressService.Article> articles, Set<String> fields,
+                                   ArticleProjection previous, ObjectMapper objectMapper,
+                                   ResponseCompression compression) throws JsonProcessingException {
+        Map<WordPressService.Article, byte[]> reusable = new IdentityHashMap<>();
+        if (previous != null) {
+            if (sameInstances(previous.articles, articles)) {
+                return previous;
+            }
+            for (int i = 0; i < previous.fragments.length; i++) {
+                reusable.put(previous.articles.get(i), previous.fragments[i]);
+            }
+        }
+
+        byte[][] fragments = new byte[articles.size()][];
+        for (int i = 0; i < fragments.length; i++) {
+            WordPressService.Article article = articles.get(i);
+            fragments[i] = reusable.get(article);
+            if (fragments[i] == null) {
+                ObjectNode node = objectMapper.valueToTree(article);
+                node.retain(fields);
+                fragments[i] = objectMapper.writeValueAsBytes(node);
+            }
+        }
+
+        return new ArticleProjection(articles, fragments, WordPressService.CachedResponse.precompressed(
+            assemble(fragments, 0, fragments.length, false, null, objectMapper), compression));
+    }
+
+    static boolean sameInstances(List<WordPressService.Article> a, List<WordPressService.Article> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Die vollständige Liste in dieser Projektion.
+     */
+    WordPressService.CachedResponse getListResponse() {
+        return listResponse;
+    }
+
+    /**
+     * Eine Seite der Liste: {@code data} enthält {@code articles} und {@code nextCursor}.
+     */
+    byte[] page(int start, int end, String nextCursor, ObjectMapper objectMapper) throws JsonProcessingException {
+        return assemble(fragments, start, end, true, nextCursor, objectMapper);
+    }
+
+    private static byte[] assemble(byte[][] fragments, int start, int end, boolean paged, String nextCursor,
+                                   ObjectMapper objectMapper) throws JsonProcessingException {
+        int length = 128;
+        for (int i = start; i < end; i++) {
+            length += fragments[i].length + 1;
+        }
+
+        // Gleiche Feldreihenfolge wie ApiResponse
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        write(out, "{\"success\":true,\"message\":");
+        out.writeBytes(objectMapper.writeValueAsBytes(MESSAGE));
+        write(out, paged ? ",\"data\":{\"articles\":[" : ",\"data\":[");
+        for (int i = start; i < end; i++) {
+            if (i > start) {
+                out.write(',');
+            }
+            out.writeBytes(fragments[i]);
+        }
+        if (paged) {
+            write(out, "],\"nextCursor\":");
+            out.writeBytes(objectMapper.writeValueAsBytes(nextCursor));
+            write(out, "}}");
+        } else {
+            write(out, "]}");
+        }
+        return out.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) {
+        out.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
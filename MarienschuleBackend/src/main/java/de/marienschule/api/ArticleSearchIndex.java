@@ -0,0 +1,410 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Invertierter Index über Titel, Auszug und Inhalt der Artikel für die Volltextsuche.
+ * Wörter werden für das Deutsche normalisiert (Umlaute, ß, einfache Endungen), Treffer
+ * nach BM25 sortiert. Der Index wird beim Refresh artikelweise aktualisiert und neben dem
+ * Artikel-Cache gespeichert, damit die Suche nach einem Neustart sofort zur Verfügung steht.
+ */
+class ArticleSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Ein Treffer im Titel zählt so viel wie mehrere im Text
+    private static final int TITLE_WEIGHT = 3;
+    private static final int SNIPPET_LENGTH = 200;
+    private static final int SNIPPET_LEAD = 60;
+
+    private static final Set<String> STOPWORDS = new HashSet<>(Arrays.asList(
+        "der", "die", "das", "den", "dem", "des", "ein", "eine", "einer", "eines", "einem", "einen",
+        "und", "oder", "aber", "in", "im", "an", "am", "auf", "aus", "bei", "mit", "nach", "von", "vom",
+        "zu", "zum", "zur", "fur", "uber", "ist", "sind", "war", "wurde", "wurden", "es", "sie", "wir",
+        "ihr", "er", "auch", "als", "wie", "sich", "nicht", "noch", "so", "dass", "wenn"));
+
+    private final Map<Integer, IndexedDocument> documents = new HashMap<>();
+    // Begriff -> Artikel-ID -> gewichtete Häufigkeit
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private long totalLength;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Nimmt einen Artikel neu auf oder ersetzt seine bisherigen Einträge.
+     * Unveränderte Artikel werden übersprungen; verglichen wird derselbe Hash über Titel, Auszug,
+     * Datum und Inhalt, mit dem der Service Änderungen ohne neues {@code modified} erkennt.
+     *
+     * @return {@code true}, wenn sich der Index geändert hat
+     */
+    boolean update(WordPressService.Article article) {
+        long contentHash = WordPressService.sourceHash(article);
+        IndexedDocument existing;
+        lock.readLock().lock();
+        try {
+            existing = documents.get(article.getId());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (existing != null && existing.getContentHash() != null && existing.getContentHash() == contentHash) {
+            return false;
+        }
+
+        // Tokenisieren außerhalb der Sperre, damit Suchanfragen nicht warten
+        IndexedDocument document = IndexedDocument.of(article, contentHash);
+        lock.writeLock().lock();
+        try {
+            removeLocked(article.getId());
+            addLocked(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Entfernt alle Artikel, die nicht mehr im Cache sind, z.B. nach dem Laden vom Datenträger.
+     */
+    boolean retainOnly(Set<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            return documents.keySet().removeIf(id -> {
+                if (ids.contains(id)) {
+                    return false;
+                }
+                removePostingsLocked(documents.get(id));
+                return true;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(IndexedDocument document) {
+        documents.put(document.getId(), document);
+        totalLength += document.getLength();
+        document.getTerms().forEach((term, frequency) ->
+            postings.computeIfAbsent(term, key -> new HashMap<>()).put(document.getId(), frequency));
+    }
+
+    private void removeLocked(int id) {
+        IndexedDocument document = documents.remove(id);
+        if (document != null) {
+            removePostingsLocked(document);
+        }
+    }
+
+    private void removePostingsLocked(IndexedDocument document) {
+        int id = document.getId();
+        totalLength -= document.getLength();
+        for (String term : document.getTerms().keySet()) {
+            Map<Integer, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sucht nach allen Begriffen der Anfrage (ODER-Verknüpfung) und liefert die besten Treffer.
+     */
+    List<SearchHit> search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(terms(query));
+        if (queryTerms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return new ArrayList<>();
+            }
+            double averageLength = (double) totalLength / documentCount;
+
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                Map<Integer, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+                posting.forEach((id, frequency) -> {
+                    double norm = K1 * (1 - B + B * documents.get(id).getLength() / averageLength);
+                    scores.merge(id, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                });
+            }
+
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+            List<SearchHit> hits = new ArrayList<>();
+            for (Map.Entry<Integer, Double> entry : ranked.subList(0, Math.min(limit, ranked.size()))) {
+                IndexedDocument document = documents.get(entry.getKey());
+                hits.add(new SearchHit(entry.getKey(), entry.getValue(), snippet(document.getText(), queryTerms)));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ausschnitt um den ersten Treffer, HTML-escaped und mit {@code <mark>} um die Fundstellen.
+     */
+    static String snippet(String text, Set<String> queryTerms) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+
+        List<int[]> matches = new ArrayList<>();
+        forEachWord(text, (start, end) -> {
+            if (queryTerms.contains(normalize(text.substring(start, end)))) {
+                matches.add(new int[]{start, end});
+            }
+        });
+
+        int from = matches.isEmpty() ? 0 : Math.max(0, matches.get(0)[0] - SNIPPET_LEAD);
+        if (from > 0) {
+            // Nicht mitten im Wort beginnen
+            int space = text.indexOf(' ', from);
+            from = space < 0 || space >= matches.get(0)[0] ? from : space + 1;
+        }
+        int to = Math.min(text.length(), from + SNIPPET_LENGTH);
+        if (to < text.length()) {
+            int space = text.lastIndexOf(' ', to);
+            to = space > from ? space : to;
+        }
+
+        StringBuilder snippet = new StringBuilder();
+        if (from > 0) {
+            snippet.append("… ");
+        }
+        int position = from;
+        for (int[] match : matches) {
+            if (match[0] < from || match[1] > to) {
+                continue;
+            }
+            snippet.append(HtmlUtils.htmlEscape(text.substring(position, match[0]), "UTF-8"))
+                .append("<mark>").append(HtmlUtils.htmlEscape(text.substring(match[0], match[1]), "UTF-8")).append("</mark>");
+            position = match[1];
+        }
+        snippet.append(HtmlUtils.htmlEscape(text.substring(position, to), "UTF-8"));
+        if (to < text.length()) {
+            snippet.append(" …");
+        }
+        return snippet.toString();
+    }
+
+    /**
+     * Zerlegt einen Text in normalisierte Suchbegriffe ohne Stoppwörter.
+     */
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        forEachWord(text, (start, end) -> {
+            String term = normalize(text.substring(start, end));
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        });
+        return terms;
+    }
+
+    private interface WordConsumer {
+        void accept(int start, int end);
+    }
+
+    private static void forEachWord(String text, WordConsumer consumer) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                consumer.accept(start, i);
+                start = -1;
+            }
+        }
+    }
+
+    /**
+     * Kleinschreibung, Umlaute und ß auflösen, Akzente entfernen und einfache deutsche
+     * Endungen abschneiden, sodass z.B. "Schüler", "Schule" und "Schulen" zusammenfallen.
+     * Stoppwörter ergeben einen leeren Begriff.
+     */
+    static String normalize(String word) {
+        String term = word.toLowerCase(Locale.GERMAN)
+            .replace("ä", "a").replace("ö", "o").replace("ü", "u").replace("ß", "ss");
+        for (int i = 0; i < term.length(); i++) {
+            if (term.charAt(i) > 127) {
+                term = Normalizer.normalize(term, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+                break;
+            }
+        }
+        if (STOPWORDS.contains(term)) {
+            return "";
+        }
+        return stem(term);
+    }
+
+    private static String stem(String term) {
+        if (term.length() > 5 && term.endsWith("ern")) {
+            return term.substring(0, term.length() - 3);
+        }
+        if (term.length() > 4 && (term.endsWith("em") || term.endsWith("er") || term.endsWith("en")
+                || term.endsWith("es") || term.endsWith("nd"))) {
+            return term.substring(0, term.length() - 2);
+        }
+        if (term.length() > 3 && (term.endsWith("e") || term.endsWith("s") || term.endsWith("n"))) {
+            return term.substring(0, term.length() - 1);
+        }
+        return term;
+    }
+
+    /**
+     * Entfernt Tags und löst HTML-Entities auf.
+     */
+    static String plainText(String html) {
+        if (html == null) {
+            return "";
+        }
+        return HtmlUtils.htmlUnescape(ContentNormalizer.stripTags(html)).replaceAll("\\s+", " ").trim();
+    }
+
+    void save(Path file, ObjectMapper objectMapper) throws IOException {
+        byte[] json;
+        lock.readLock().lock();
+        try {
+            json = objectMapper.writeValueAsBytes(documents.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        ArticleStore.writeAtomically(file, json);
+    }
+
+    void load(Path file, ObjectMapper objectMapper) throws IOException {
+        Collection<IndexedDocument> loaded = objectMapper.readValue(file.toFile(),
+            new TypeReference<List<IndexedDocument>>() {});
+        lock.writeLock().lock();
+        try {
+            for (IndexedDocument document : loaded) {
+                removeLocked(document.getId());
+                addLocked(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ein Artikel, wie er im Index und in der gespeicherten Datei steht.
+     */
+    static class IndexedDocument {
+        private int id;
+        // Ältere Indexdateien haben keinen Hash, ihre Artikel werden beim Abgleich neu aufgenommen
+        private Long contentHash;
+        private String text;
+        private int length;
+        private Map<String, Integer> terms = new HashMap<>();
+
+        static IndexedDocument of(WordPressService.Article article, long contentHash) {
+            IndexedDocument document = new IndexedDocument();
+            document.id = article.getId();
+            document.contentHash = contentHash;
+
+            String title = article.getTitle() == null ? "" : plainText(article.getTitle().getRendered());
+            String excerpt = article.getExcerpt() == null ? "" : plainText(article.getExcerpt().getRendered());
+            String content = article.getContent() == null ? "" : plainText(article.getContent().getRendered());
+            document.text = content.isEmpty() ? excerpt : content;
+
+            for (String term : terms(title)) {
+                document.terms.merge(term, TITLE_WEIGHT, Integer::sum);
+                document.length += TITLE_WEIGHT;
+            }
+            // Der Auszug ist meist der Anfang des Inhalts, zählt dann also doppelt
+            for (String term : terms(excerpt + " " + content)) {
+                document.terms.merge(term, 1, Integer::sum);
+                document.length++;
+            }
+            return document;
+        }
+
+        public int getId() { return id; }
+        public void setId(int id) { this.id = id; }
+
+        public Long getContentHash() { return contentHash; }
+        public void setContentHash(Long contentHash) { this.contentHash = contentHash; }
+
+        public String getText() { return text; }
+        public void setText(String text) { this.text = text; }
+
+        public int getLength() { return length; }
+        public void setLength(int length) { this.length = length; }
+
+        public Map<String, Integer> getTerms() { return terms; }
+        public void setTerms(Map<String, Integer> terms) { this.terms = Objects.requireNonNullElseGet(terms, HashMap::new); }
+    }
+
+    /**
+     * Ein Suchtreffer mit Relevanz und hervorgehobenem Textausschnitt.
+     */
+    static final class SearchHit {
+        private final int id;
+        private final double score;
+        private final String snippet;
+
+        SearchHit(int id, double score, String snippet) {
+            this.id = id;
+            this.score = score;
+            this.snippet = snippet;
+        }
+
+        int getId() { return id; }
+        double getScore() { return score; }
+        String getSnippet() { return snippet; }
+    }
+}
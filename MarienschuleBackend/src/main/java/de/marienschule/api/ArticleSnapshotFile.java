@@ -0,0 +1,219 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Der veröffentlichte Artikel-Snapshot als eine einzige Datei für den schnellen Start.
+ * Die Datei enthält einen Offset-Index, die Artikel in Smile-Kodierung (binäres JSON) in
+ * Snapshot-Reihenfolge und die fertig serialisierte Standard-Artikelliste. Beim Start wird sie nur
+ * eingeblendet (memory-mapped); ein Artikel wird erst beim ersten Zugriff dekodiert.
+ *
+ * <p>Lazy ist damit nur der Weg bis zur ersten Antwort: Die Artikelliste kommt direkt aus der
+ * Datei, während der Refresh-Thread gleich danach alle Artikel in den Cache übernimmt und dabei
+ * dekodiert. Refresh, Abgleich und Suche brauchen den vollständigen Cache; nach dem Start liegt
+ * jeder Artikel also einmal dekodiert im Heap, wie vor dem Snapshot-Format auch.
+ *
+ * <pre>
+ * Kopf:    magic, version, count, listOffset, listLength, listEtag (32 Bytes)
+ * Index:   count x (id, storeHash (32 Bytes), offset, length)
+ * Daten:   Smile-kodierte Artikel, danach die Artikelliste als JSON
+ * </pre>
+ */
+final class ArticleSnapshotFile {
+
+    private static final int MAGIC = 0x4D534E50; // "MSNP"
+    private static final int FORMAT_VERSION = 3;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = 4 + 4 + 4 + 8 + 4 + HASH_LENGTH;
+    private static final int ENTRY_LENGTH = 4 + HASH_LENGTH + 8 + 4;
+
+    private final ByteBuffer mapped;
+    private final ObjectMapper smileMapper;
+    private final int[] ids;
+    private final String[] storeHashes;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final long listOffset;
+    private final int listLength;
+    private final String listEtag;
+    private final AtomicReferenceArray<WordPressService.Article> decoded;
+
+    private ArticleSnapshotFile(ByteBuffer mapped, ObjectMapper smileMapper) throws IOException {
+        this.mapped = mapped;
+        this.smileMapper = smileMapper;
+
+        if (mapped.limit() < HEADER_LENGTH || mapped.getInt(0) != MAGIC || mapped.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Not a snapshot file of version " + FORMAT_VERSION);
+        }
+        int count = mapped.getInt(8);
+        listOffset = mapped.getLong(12);
+        listLength = mapped.getInt(20);
+        listEtag = readAscii(24, HASH_LENGTH);
+        if (count < 0 || HEADER_LENGTH + (long) count * ENTRY_LENGTH > mapped.limit()
+                || listOffset + listLength > mapped.limit()) {
+            throw new IOException("Truncated snapshot file");
+        }
+
+        ids = new int[count];
+        storeHashes = new String[count];
+        offsets = new long[count];
+        lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            int entry = HEADER_LENGTH + i * ENTRY_LENGTH;
+            ids[i] = mapped.getInt(entry);
+            storeHashes[i] = readAscii(entry + 4, HASH_LENGTH);
+            offsets[i] = mapped.getLong(entry + 4 + HASH_LENGTH);
+            lengths[i] = mapped.getInt(entry + 4 + HASH_LENGTH + 8);
+            if (offsets[i] + lengths[i] > mapped.limit()) {
+                throw new IOException("Truncated snapshot file");
+            }
+        }
+        decoded = new AtomicReferenceArray<>(count);
+    }
+
+    private String readAscii(int offset, int length) {
+        byte[] bytes = new byte[length];
+        mapped.duplicate().position(offset).get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Blendet die Datei ein und liest nur Kopf und Index.
+     */
+    static ArticleSnapshotFile open(Path file, ObjectMapper smileMapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Die Einblendung bleibt nach dem Schließen des Kanals gültig
+            return new ArticleSnapshotFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), smileMapper);
+        }
+    }
+
+    /**
+     * Schreibt den Snapshot atomar. Zu jedem Artikel wird der Hash vermerkt, unter dem
+     * {@link ArticleStore} ihn gespeichert hat, damit die Datei beim Start gegen das
+     * Manifest geprüft werden kann.
+     */
+    static void write(Path file, List<WordPressService.Article> articles, WordPressService.CachedResponse listResponse,
+                      ObjectMapper objectMapper, ObjectMapper smileMapper) throws IOException {
+        int count = articles.size();
+        byte[][] encoded = new byte[count][];
+        long dataLength = 0;
+        for (int i = 0; i < count; i++) {
+            encoded[i] = smileMapper.writeValueAsBytes(articles.get(i));
+            dataLength += encoded[i].length;
+        }
+
+        long dataOffset = HEADER_LENGTH + (long) count * ENTRY_LENGTH;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+            (int) (dataOffset + dataLength + listResponse.getBody().length));
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(count);
+        out.writeLong(dataOffset + dataLength);
+        out.writeInt(listResponse.getBody().length);
+        out.write(listResponse.getEtag().getBytes(StandardCharsets.US_ASCII));
+
+        long offset = dataOffset;
+        for (int i = 0; i < count; i++) {
+            WordPressService.Article article = articles.get(i);
+            out.writeInt(article.getId());
+            out.write(ArticleStore.hash(objectMapper.writeValueAsBytes(article)).getBytes(StandardCharsets.US_ASCII));
+            out.writeLong(offset);
+            out.writeInt(encoded[i].length);
+            offset += encoded[i].length;
+        }
+        for (byte[] article : encoded) {
+            out.write(article);
+        }
+        out.write(listResponse.getBody());
+        out.flush();
+
+        ArticleStore.writeAtomically(file, bytes.toByteArray());
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Artikel-ID -> Hash der gespeicherten Artikeldatei, zum Abgleich mit dem Manifest.
+     */
+    Map<Integer, String> getStoreHashes() {
+        Map<Integer, String> hashes = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            hashes.put(ids[i], storeHashes[i]);
+        }
+        return hashes;
+    }
+
+    Map<Integer, Integer> getPositions() {
+        Map<Integer, Integer> positions = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            positions.put(ids[i], i);
+        }
+        return positions;
+    }
+
+    WordPressService.CachedResponse getListResponse(ResponseCompression compression) {
+        byte[] body = new byte[listLength];
+        mapped.duplicate().position((int) listOffset).get(body);
+        return WordPressService.CachedResponse.precompressed(body, listEtag, compression);
+    }
+
+    /**
+     * Die Artikel in Snapshot-Reihenfolge; jeder wird erst beim ersten Zugriff dekodiert.
+     */
+    List<WordPressService.Article> getArticles() {
+        return new LazyArticles();
+    }
+
+    private WordPressService.Article decode(int index) {
+        WordPressService.Article article = decoded.get(index);
+        if (article != null) {
+            return article;
+        }
+
+        ByteBuffer slice = mapped.duplicate();
+        slice.position((int) offsets[index]).limit((int) offsets[index] + lengths[index]);
+        try {
+            article = smileMapper.readValue(new ByteBufferBackedInputStream(slice), WordPressService.Article.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error decoding article " + ids[index] + " from snapshot", e);
+        }
+        // Bei gleichzeitigem Zugriff gewinnt die erste Instanz, damit alle dasselbe Objekt sehen
+        return decoded.compareAndSet(index, null, article) ? article : decoded.get(index);
+    }
+
+    private final class LazyArticles extends AbstractList<WordPressService.Article> implements RandomAccess {
+        @Override
+        public WordPressService.Article get(int index) {
+            if (index < 0 || index >= ids.length) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + ids.length);
+            }
+            return decode(index);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Speichert die Artikel als einzelne JSON-Dateien im Cache-Verzeichnis.
+ * Eine Datei wird nur geschrieben, wenn sich ihr Inhalts-Hash geändert hat. Geschrieben wird
+ * zunächst in eine temporäre Datei; erst {@link #commit()} synchronisiert alle Dateien eines
+ * Refreshs in einem Schwung auf den Datenträger, benennt sie atomar um und aktualisiert das
+ * Manifest mit den Hashes. Beim Start lässt sich der Cache so ohne JSON-Parsen prüfen.
+ */
+class ArticleStore {
+
+    private static final Pattern ARTICLE_FILE = Pattern.compile("article_(\\d+)\\.json");
+    private static final String TEMP_SUFFIX = ".part";
+
+    private final Path directory;
+    private final Path manifestFile;
+    private final ObjectMapper objectMapper;
+
+    // Artikel-ID -> Hash der zuletzt geschriebenen (oder noch ausstehenden) Datei
+    private final Map<Integer, String> hashes = new HashMap<>();
+    // Artikel-ID -> temporäre Datei, die beim nächsten commit() an ihren Platz kommt
+    private final Map<Integer, Path> pending = new LinkedHashMap<>();
+    private boolean manifestDirty;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong commits = new AtomicLong();
+
+    ArticleStore(Path directory, Path manifestFile, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.manifestFile = manifestFile;
+        this.objectMapper = objectMapper;
+    }
+
+    static String hash(byte[] content) {
+        return DigestUtils.md5DigestAsHex(content);
+    }
+
+    private Path articleFile(int id) {
+        return directory.resolve("article_" + id + ".json");
+    }
+
+    /**
+     * Merkt einen Artikel zum Schreiben vor, sofern sich sein Inhalt geändert hat.
+     *
+     * @return {@code false}, wenn die Datei bereits genau diesen Inhalt hat
+     */
+    synchronized boolean write(int id, byte[] json) throws IOException {
+        String hash = hash(json);
+        if (hash.equals(hashes.get(id))) {
+            unchanged.incrementAndGet();
+            return false;
+        }
+
+        Path tempFile = Files.createTempFile(directory, "article_" + id + "_", TEMP_SUFFIX);
+        Files.write(tempFile, json);
+        Path previous = pending.put(id, tempFile);
+        if (previous != null) {
+            Files.deleteIfExists(previous);
+        }
+        hashes.put(id, hash);
+        manifestDirty = true;
+        written.incrementAndGet();
+        return true;
+    }
+
+    synchronized void delete(int id) throws IOException {
+        Path tempFile = pending.remove(id);
+        if (tempFile != null) {
+            Files.deleteIfExists(tempFile);
+        }
+        if (hashes.remove(id) != null) {
+            manifestDirty = true;
+        }
+        Files.deleteIfExists(articleFile(id));
+    }
+
+    /**
+     * Bringt alle vorgemerkten Dateien mit einem gemeinsamen fsync auf den Datenträger,
+     * benennt sie atomar um und schreibt danach das Manifest.
+     */
+    synchronized void commit() throws IOException {
+        if (pending.isEmpty() && !manifestDirty) {
+            return;
+        }
+
+        for (Path tempFile : pending.values()) {
+            force(tempFile);
+        }
+        for (Map.Entry<Integer, Path> entry : pending.entrySet()) {
+            Files.move(entry.getValue(), articleFile(entry.getKey()),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        pending.clear();
+        forceDirectory(directory);
+
+        writeAtomically(manifestFile, objectMapper.writeValueAsBytes(new TreeMap<>(hashes)));
+        manifestDirty = false;
+        commits.incrementAndGet();
+    }
+
+    /**
+     * Liest alle Artikeldateien, deren Hash zum Manifest passt. Übrig gebliebene temporäre
+     * Dateien werden gelöscht. Ohne Manifest (älterer Cache) werden alle Dateien übernommen
+     * und das Manifest beim nächsten {@link #commit()} angelegt.
+     */
+    synchronized LoadResult load() throws IOException {
+        Map<Integer, String> manifest = readManifest();
+
+        Map<Integer, byte[]> articles = new HashMap<>();
+        Set<Integer> found = new HashSet<>();
+        int rejected = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    // Abgebrochener Schreibvorgang, die alte Datei ist noch intakt
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+
+                Matcher matcher = ARTICLE_FILE.matcher(name);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                int id = Integer.parseInt(matcher.group(1));
+                found.add(id);
+                byte[] content = Files.readAllBytes(file);
+                String hash = hash(content);
+                if (manifest != null && !hash.equals(manifest.get(id))) {
+                    // Nicht vertrauenswürdig: löschen, der nächste vollständige Abgleich holt den Artikel neu
+                    System.err.println("Cached article " + id + " does not match the manifest, discarding it");
+                    Files.deleteIfExists(file);
+                    rejected++;
+                    continue;
+                }
+                articles.put(id, content);
+                hashes.put(id, hash);
+            }
+        }
+
+        if (manifest != null) {
+            for (Integer id : manifest.keySet()) {
+                if (!found.contains(id)) {
+                    System.err.println("Cached article " + id + " is listed in the manifest but missing");
+                    rejected++;
+                }
+            }
+        }
+        manifestDirty = manifest == null || rejected > 0;
+        return new LoadResult(articles, rejected);
+    }
+
+    /**
+     * Übernimmt die Hashes aus dem Manifest, ohne die Artikeldateien zu lesen.
+     * Wird beim Start aus der Snapshot-Datei verwendet, nachdem diese gegen das Manifest geprüft wurde.
+     */
+    synchronized void adopt(Map<Integer, String> manifest) {
+        hashes.clear();
+        hashes.putAll(manifest);
+        manifestDirty = false;
+    }
+
+    /**
+     * Liest das Manifest oder liefert {@code null}, wenn es fehlt oder nicht lesbar ist.
+     */
+    Map<Integer, String> readManifest() {
+        try {
+            return objectMapper.readValue(Files.readAllBytes(manifestFile), new TypeReference<Map<Integer, String>>() {});
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("Error reading article manifest: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Vergisst einen Artikel, dessen Datei sich nicht lesen ließ, damit sie neu geschrieben wird.
+     */
+    synchronized void forget(int id) {
+        if (hashes.remove(id) != null) {
+            manifestDirty = true;
+        }
+    }
+
+    synchronized int size() {
+        return hashes.size();
+    }
+
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("files", size());
+        metrics.put("written", written.get());
+        metrics.put("unchanged", unchanged.get());
+        metrics.put("commits", commits.get());
+        return metrics;
+    }
+
+    /**
+     * Schreibt eine Datei über eine temporäre Datei mit fsync und atomarem Umbenennen,
+     * sodass nach einem Absturz entweder der alte oder der neue Inhalt vorliegt.
+     */
+    static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(parent, target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory(parent);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private static void forceDirectory(Path directory) {
+        // Macht die Umbenennungen dauerhaft; nicht jedes Betriebssystem erlaubt das für Verzeichnisse
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Ohne fsync des Verzeichnisses sind die Dateien selbst trotzdem vollständig
+        }
+    }
+
+    /**
+     * Ergebnis des Ladens: die gültigen Artikeldateien und die Zahl der verworfenen.
+     */
+    static final class LoadResult {
+        private final Map<Integer, byte[]> articles;
+        private final int rejected;
+
+        private LoadResult(Map<Integer, byte[]> articles, int rejected) {
+            this.articles = articles;
+            this.rejected = rejected;
+        }
+
+        Map<Integer, byte[]> getArticles() { return articles; }
+        int getRejected() { return rejected; }
+    }
+}
@@ -0,0 +1,483 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Wandelt den bereinigten HTML-Inhalt eines Artikels in eine flache Folge von Blöcken um
+ * (Absatz, Überschrift, Bild, Liste, Zitat, Einbettung), die Apps und Widgets ohne Web-View
+ * darstellen können. Text steht in Abschnitten mit Fett, Kursiv und Link. Alles, was sich
+ * nicht abbilden lässt (Tabellen, Skripte, Formulare), wird auf seinen Text reduziert oder
+ * ausgelassen.
+ */
+final class ContentBlocks {
+
+    private ContentBlocks() {
+    }
+
+    /**
+     * @param baseUri Basis für relative Links; Bildpfade bleiben unverändert, da sie auf
+     *                {@code /api/images} des eigenen Servers zeigen können
+     */
+    static List<Block> parse(String html, String baseUri) {
+        if (html == null || html.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        Builder builder = new Builder();
+        builder.blocks(Jsoup.parseBodyFragment(html, baseUri).body());
+        builder.flushParagraph();
+        return Collections.unmodifiableList(builder.blocks);
+    }
+
+    private static final class Builder {
+        private final List<Block> blocks = new ArrayList<>();
+        // Text außerhalb eines Block-Elements, z.B. direkt im body oder in einem div
+        private final List<Span> paragraph = new ArrayList<>();
+
+        void blocks(Element parent) {
+            for (Node node : parent.childNodes()) {
+                if (node instanceof TextNode) {
+                    inline(node, paragraph, false, false, null, null);
+                } else if (node instanceof Element) {
+                    block((Element) node);
+                }
+            }
+        }
+
+        private void block(Element element) {
+            String tag = element.normalName();
+            switch (tag) {
+                case "p":
+                    flushParagraph();
+                    paragraph(element);
+                    break;
+                case "h1": case "h2": case "h3": case "h4": case "h5": case "h6":
+                    flushParagraph();
+                    List<Span> heading = spans(element);
+                    if (!heading.isEmpty()) {
+                        Block block = new Block("heading");
+                        block.level = tag.charAt(1) - '0';
+                        block.spans = heading;
+                        blocks.add(block);
+                    }
+                    break;
+                case "ul": case "ol":
+                    flushParagraph();
+                    list(element, 1);
+                    break;
+                case "blockquote":
+                    // Zitate enthalten meist eigene Absätze, die alle zu Zitat-Blöcken werden
+                    flushParagraph();
+                    int first = blocks.size();
+                    blocks(element);
+                    flushParagraph();
+                    for (Block block : blocks.subList(first, blocks.size())) {
+                        if (block.type.equals("paragraph")) {
+                            block.type = "quote";
+                        }
+                    }
+                    break;
+                case "figure":
+                    flushParagraph();
+                    figure(element);
+                    break;
+                case "img":
+                    flushParagraph();
+                    image(element, null, null);
+                    break;
+                case "iframe": case "video": case "audio":
+                    flushParagraph();
+                    embed(element);
+                    break;
+                case "script": case "style": case "noscript": case "form": case "svg":
+                    break;
+                case "br":
+                    flushParagraph();
+                    break;
+                case "hr":
+                    flushParagraph();
+                    blocks.add(new Block("divider"));
+                    break;
+                default:
+                    if (isInline(tag)) {
+                        inline(element, paragraph, false, false, null, this::inlineImage);
+                    } else {
+                        // div, section, table usw.: nur der Inhalt zählt
+                        flushParagraph();
+                        blocks(element);
+                        flushParagraph();
+                    }
+            }
+        }
+
+        /**
+         * Absatz mit eingebetteten Bildern: Text vor und nach einem Bild wird zu eigenen Absätzen.
+         * Das gilt auch für Bilder in Links oder Formatierungen, z.B. {@code <a href="gross.jpg"><img></a>}.
+         */
+        private void paragraph(Element element) {
+            for (Node node : element.childNodes()) {
+                if (node instanceof Element && !isInline(((Element) node).normalName())) {
+                    flushParagraph();
+                    block((Element) node);
+                    flushParagraph();
+                } else {
+                    inline(node, paragraph, false, false, null, this::inlineImage);
+                }
+            }
+            flushParagraph();
+        }
+
+        private void inlineImage(Element element, String href) {
+            flushParagraph();
+            image(element, null, href);
+        }
+
+        void flushParagraph() {
+            // addTextBlock kopiert die Abschnitte, die Liste bleibt für inline() dieselbe
+            addTextBlock(paragraph);
+            paragraph.clear();
+        }
+
+        private void addTextBlock(List<Span> spans) {
+            List<Span> trimmed = trim(spans);
+            if (!trimmed.isEmpty()) {
+                Block block = new Block("paragraph");
+                block.spans = trimmed;
+                blocks.add(block);
+            }
+        }
+
+        /**
+         * Eine verschachtelte Liste unterbricht die äußere: sie folgt als eigene Liste mit
+         * höherem {@code level}, danach geht die äußere Liste als neuer Block weiter.
+         * Bilder in einem Listenpunkt (z.B. ältere WordPress-Galerien) unterbrechen sie ebenso.
+         */
+        private void list(Element element, int depth) {
+            Block block = newList(element, depth);
+            for (Element item : element.children()) {
+                if (!item.normalName().equals("li")) {
+                    continue;
+                }
+                List<Span> spans = new ArrayList<>();
+                List<Element> nested = new ArrayList<>();
+                List<Block> images = new ArrayList<>();
+                for (Node node : item.childNodes()) {
+                    String name = node instanceof Element ? ((Element) node).normalName() : "";
+                    if (name.equals("ul") || name.equals("ol")) {
+                        nested.add((Element) node);
+                    } else if (name.equals("figure")) {
+                        images.addAll(figureImages((Element) node));
+                    } else {
+                        inline(node, spans, false, false, null, (image, href) -> addImage(images, image, null, href));
+                    }
+                }
+                List<Span> trimmed = trim(spans);
+                if (!trimmed.isEmpty()) {
+                    block.items.add(trimmed);
+                }
+                if (!nested.isEmpty() || !images.isEmpty()) {
+                    addList(block);
+                    blocks.addAll(images);
+                    for (Element list : nested) {
+                        list(list, depth + 1);
+                    }
+                    block = newList(element, depth);
+                }
+            }
+            addList(block);
+        }
+
+        private Block newList(Element element, int depth) {
+            Block block = new Block("list");
+            block.ordered = element.normalName().equals("ol");
+            block.level = depth;
+            block.items = new ArrayList<>();
+            return block;
+        }
+
+        private void addList(Block block) {
+            if (!block.items.isEmpty()) {
+                blocks.add(block);
+            }
+        }
+
+        private void figure(Element element) {
+            List<Block> images = figureImages(element);
+            if (images.isEmpty()) {
+                blocks(element);
+                flushParagraph();
+                return;
+            }
+            blocks.addAll(images);
+        }
+
+        private void image(Element element, String caption, String href) {
+            addImage(blocks, element, caption, href);
+        }
+
+        private void embed(Element element) {
+            String url = absoluteUrl(element, "src");
+            if (url == null) {
+                Element source = element.selectFirst("source[src]");
+                url = source == null ? null : absoluteUrl(source, "src");
+            }
+            if (url != null) {
+                Block block = new Block("embed");
+                block.url = url;
+                blocks.add(block);
+            }
+        }
+    }
+
+    /**
+     * Sammelt den Text eines Knotens als Abschnitte. Bilder gehen an {@code images} zusammen mit
+     * dem Ziel eines umgebenden Links; ohne {@code images} werden sie ausgelassen.
+     */
+    private static void inline(Node node, List<Span> spans, boolean bold, boolean italic, String href,
+                               BiConsumer<Element, String> images) {
+        if (node instanceof TextNode) {
+            append(spans, ((TextNode) node).text(), bold, italic, href);
+            return;
+        }
+        if (!(node instanceof Element)) {
+            return;
+        }
+
+        Element element = (Element) node;
+        switch (element.normalName()) {
+            case "br":
+                append(spans, "\n", bold, italic, href);
+                return;
+            case "strong": case "b":
+                bold = true;
+                break;
+            case "em": case "i":
+                italic = true;
+                break;
+            case "a":
+                String link = absoluteUrl(element, "href");
+                if (link != null) {
+                    href = link;
+                }
+                break;
+            case "img":
+                if (images != null) {
+                    images.accept(element, href);
+                }
+                return;
+            case "script": case "style":
+                return;
+            default:
+        }
+        for (Node child : element.childNodes()) {
+            inline(child, spans, bold, italic, href, images);
+        }
+    }
+
+    private static List<Span> spans(Element element) {
+        List<Span> spans = new ArrayList<>();
+        for (Node node : element.childNodes()) {
+            inline(node, spans, false, false, null, null);
+        }
+        return trim(spans);
+    }
+
+    /**
+     * Die Bilder einer Abbildung oder Galerie, jeweils mit dem Link, in dem sie stehen.
+     * Die Bildunterschrift gehört zum letzten Bild.
+     */
+    private static List<Block> figureImages(Element figure) {
+        Element caption = figure.selectFirst("figcaption");
+        String captionText = caption == null ? null : emptyToNull(caption.text());
+        List<Element> images = figure.select("img");
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            addImage(blocks, images.get(i), i == images.size() - 1 ? captionText : null, link(images.get(i), figure));
+        }
+        return blocks;
+    }
+
+    // Ziel des nächsten umgebenden Links innerhalb von container
+    private static String link(Element element, Element container) {
+        for (Element parent = element.parent(); parent != null && parent != container; parent = parent.parent()) {
+            if (parent.normalName().equals("a")) {
+                return absoluteUrl(parent, "href");
+            }
+        }
+        return null;
+    }
+
+    private static void addImage(List<Block> blocks, Element element, String caption, String href) {
+        String src = emptyToNull(element.attr("src"));
+        if (src == null) {
+            src = emptyToNull(element.attr("data-src"));
+        }
+        if (src == null) {
+            return;
+        }
+        Block block = new Block("image");
+        block.src = src;
+        block.alt = emptyToNull(element.attr("alt"));
+        block.width = positiveInt(element.attr("width"));
+        block.height = positiveInt(element.attr("height"));
+        block.caption = caption;
+        block.href = href;
+        blocks.add(block);
+    }
+
+    /**
+     * Hängt Text an und fasst ihn mit dem vorigen Abschnitt zusammen, wenn die Formatierung
+     * gleich ist. Leerraum zwischen Abschnitten wird wie im Browser zusammengefasst.
+     */
+    private static void append(List<Span> spans, String text, boolean bold, boolean italic, String href) {
+        if (text.isEmpty()) {
+            return;
+        }
+        Span last = spans.isEmpty() ? null : spans.get(spans.size() - 1);
+        if (last != null && text.startsWith(" ") && (last.text.endsWith(" ") || last.text.endsWith("\n"))) {
+            text = text.substring(1);
+            if (text.isEmpty()) {
+                return;
+            }
+        }
+        if (last != null && last.bold == bold && last.italic == italic && Objects.equals(last.href, href)) {
+            last.text += text;
+        } else {
+            spans.add(new Span(text, bold, italic, href));
+        }
+    }
+
+    private static List<Span> trim(List<Span> spans) {
+        int start = 0;
+        int end = spans.size();
+        while (start < end && spans.get(start).text.isBlank()) {
+            start++;
+        }
+        while (end > start && spans.get(end - 1).text.isBlank()) {
+            end--;
+        }
+        if (start == end) {
+            return Collections.emptyList();
+        }
+
+        List<Span> trimmed = new ArrayList<>(spans.subList(start, end));
+        Span first = trimmed.get(0);
+        first.text = first.text.stripLeading();
+        Span last = trimmed.get(trimmed.size() - 1);
+        last.text = last.text.stripTrailing();
+        return trimmed;
+    }
+
+    private static boolean isInline(String tag) {
+        switch (tag) {
+            case "a": case "abbr": case "b": case "bdi": case "bdo": case "cite": case "code": case "data":
+            case "dfn": case "em": case "i": case "kbd": case "mark": case "q": case "s": case "samp":
+            case "small": case "span": case "strong": case "sub": case "sup": case "time": case "u":
+            case "var": case "wbr": case "del": case "ins": case "font": case "br":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Wie {@link Element#absUrl}, aber ohne dessen teure Auflösung für URLs, die schon absolut sind
+     * (der Normalfall bei WordPress).
+     */
+    private static String absoluteUrl(Element element, String attribute) {
+        String value = emptyToNull(element.attr(attribute));
+        if (value == null) {
+            return null;
+        }
+        if (value.regionMatches(true, 0, "https://", 0, 8) || value.regionMatches(true, 0, "http://", 0, 7)
+                || value.regionMatches(true, 0, "mailto:", 0, 7) || value.regionMatches(true, 0, "tel:", 0, 4)) {
+            return value;
+        }
+        return emptyToNull(element.absUrl(attribute));
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static Integer positiveInt(String value) {
+        try {
+            int parsed = Integer.parseInt(value.trim().toLowerCase(Locale.ROOT).replace("px", ""));
+            return parsed > 0 ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Ein Block; je nach Typ sind nur die passenden Felder gesetzt.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static final class Block {
+        private String type;
+        private Integer level;
+        private Boolean ordered;
+        private List<Span> spans;
+        private List<List<Span>> items;
+        private String src;
+        private String alt;
+        private Integer width;
+        private Integer height;
+        private String caption;
+        // Ziel eines Links um das Bild, z.B. die große Fassung
+        private String href;
+        private String url;
+
+        Block(String type) {
+            this.type = type;
+        }
+
+        public String getType() { return type; }
+        public Integer getLevel() { return level; }
+        public Boolean getOrdered() { return ordered; }
+        public List<Span> getSpans() { return spans; }
+        public List<List<Span>> getItems() { return items; }
+        public String getSrc() { return src; }
+        public String getAlt() { return alt; }
+        public Integer getWidth() { return width; }
+        public Integer getHeight() { return height; }
+        public String getCaption() { return caption; }
+        public String getHref() { return href; }
+        public String getUrl() { return url; }
+    }
+
+    /**
+     * Ein Textabschnitt mit einheitlicher Formatierung.
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    static final class Span {
+        private String text;
+        private final boolean bold;
+        private final boolean italic;
+        private final String href;
+
+        Span(String text, boolean bold, boolean italic, String href) {
+            this.text = text;
+            this.bold = bold;
+            this.italic = italic;
+            this.href = href;
+        }
+
+        @JsonInclude(JsonInclude.Include.ALWAYS)
+        public String getText() { return text; }
+        public boolean isBold() { return bold; }
+        public boolean isItalic() { return italic; }
+        public String getHref() { return href; }
+    }
+}
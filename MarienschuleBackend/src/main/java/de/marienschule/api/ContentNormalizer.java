@@ -0,0 +1,282 @@
+package de.marienschule.api;
+
+import java.util.regex.Pattern;
+
+/**
+ * Bereinigt WordPress-HTML in einem einzigen Durchlauf über den Text.
+ * Entfernt Kürzungsmarken, "Weiterlesen"-Links, Shortcodes und Platzhalter für
+ * geschützte Inhalte, ersetzt {@code &hellip;} und schließt einen offenen Absatz.
+ * Das Ergebnis ist zeichengenau dasselbe wie bei der früheren Kette aus einzelnen
+ * {@code replaceAll}-Aufrufen. Für die seltenen Eingaben, bei denen sich die einzelnen
+ * Schritte gegenseitig beeinflussen (z.B. Marken innerhalb eines Shortcodes),
+ * wird auf diese Kette mit vorkompilierten Mustern zurückgegriffen.
+ */
+final class ContentNormalizer {
+
+    private static final String[] TRUNCATION_MARKERS = {"[&hellip;]", "[…]", "[&#8230;]"};
+    private static final String MORE_LINK_START = "<a class=\"more-link\"";
+    private static final String MORE_LINK_END = "</a>";
+    private static final String PROTECTED_PLACEHOLDER = "(Passwortgeschützer Inhalt)";
+    private static final String HELLIP = "&hellip;";
+    private static final String PARAGRAPH_OPEN = "<p>";
+    private static final String PARAGRAPH_CLOSE = "</p>";
+
+    // Zeichenfolgen, die durch das Entfernen eines Abschnitts neu zusammenwachsen könnten
+    private static final String[] JOINABLE_TOKENS = {
+        PARAGRAPH_OPEN, PARAGRAPH_CLOSE, MORE_LINK_START, MORE_LINK_END, PROTECTED_PLACEHOLDER, HELLIP
+    };
+    private static final int MAX_TOKEN_LENGTH = maxLength(JOINABLE_TOKENS);
+
+    // Die ursprüngliche Kette, nur noch für verschachtelte Sonderfälle
+    private static final Pattern[] TRUNCATION_PATTERNS = {
+        Pattern.compile("\\[&hellip;\\]"), Pattern.compile("\\[…\\]"), Pattern.compile("\\[&#8230;\\]")
+    };
+    private static final Pattern MORE_LINK = Pattern.compile("<a class=\"more-link\"[^>]*>.*?</a>");
+    private static final Pattern PROTECTED = Pattern.compile("\\(Passwortgeschützer Inhalt\\)");
+    private static final Pattern ELLIPSIS_ENTITY = Pattern.compile("&hellip;");
+    private static final Pattern SHORTCODE = Pattern.compile("\\[\\/?[^\\]]+\\]");
+    private static final Pattern TRAILING_DOTS = Pattern.compile("\\.\\.$");
+    private static final Pattern TRAILING_ELLIPSIS = Pattern.compile("…$");
+
+    private ContentNormalizer() {
+    }
+
+    private static int maxLength(String[] tokens) {
+        int max = 0;
+        for (String token : tokens) {
+            max = Math.max(max, token.length());
+        }
+        return max;
+    }
+
+    /**
+     * Bereinigt Inhalt oder Auszug eines Artikels.
+     */
+    static String normalize(String content) {
+        if (content == null) return "";
+
+        // Ein offener Absatz wird geschlossen, bevor die übrigen Schritte laufen
+        String text = content;
+        if (!content.contains(PARAGRAPH_CLOSE) && content.contains(PARAGRAPH_OPEN)) {
+            text = content + PARAGRAPH_CLOSE;
+        }
+
+        String result = normalizeSinglePass(text);
+        if (result == null) {
+            return normalizeStepwise(content);
+        }
+        return trimTrailingEllipsis(result);
+    }
+
+    /**
+     * Entfernt alle HTML-Tags, z.B. aus Titeln. Entspricht {@code replaceAll("<[^>]+>", "")}.
+     */
+    static String stripTags(String text) {
+        int tag = text.indexOf('<');
+        if (tag < 0) {
+            return text;
+        }
+
+        StringBuilder out = new StringBuilder(text.length());
+        int position = 0;
+        while (tag >= 0) {
+            int end = text.indexOf('>', tag + 1);
+            if (end < 0) {
+                break;
+            }
+            if (end == tag + 1) {
+                // "<>" ist kein Tag, weiter beim nächsten Zeichen
+                out.append(text, position, tag + 1);
+                position = tag + 1;
+            } else {
+                out.append(text, position, tag);
+                position = end + 1;
+            }
+            tag = text.indexOf('<', position);
+        }
+        out.append(text, position, text.length());
+        return out.toString();
+    }
+
+    /**
+     * Führt alle Ersetzungen in einem Durchlauf aus. Liefert {@code null}, wenn sich Schritte
+     * überlagern und das Ergebnis von der Reihenfolge der ursprünglichen Kette abhinge.
+     */
+    private static String normalizeSinglePass(String text) {
+        int length = text.length();
+        StringBuilder out = null;
+        int copied = 0;
+        int position = 0;
+
+        while (position < length) {
+            char c = text.charAt(position);
+            int removeEnd = -1;
+            String replacement = null;
+
+            if (c == '[') {
+                int marker = matchTruncationMarker(text, position);
+                if (marker > 0) {
+                    removeEnd = position + marker;
+                } else {
+                    int close = text.indexOf(']', position + 1);
+                    if (close > position + 1) {
+                        // Marken, Links oder Platzhalter innerhalb eines Shortcodes ändern dessen Grenzen
+                        if (containsAny(text, position + 1, close, "[", MORE_LINK_START, PROTECTED_PLACEHOLDER)) {
+                            return null;
+                        }
+                        // Shortcodes wurden erst zum Schluss entfernt, daher ohne Prüfung auf Zusammenwachsen
+                        out = flush(out, text, copied, position);
+                        copied = position = close + 1;
+                        continue;
+                    }
+                }
+            } else if (c == '<' && text.startsWith(MORE_LINK_START, position)) {
+                removeEnd = findMoreLinkEnd(text, position);
+                if (removeEnd == -2) {
+                    return null;
+                }
+            } else if (c == '(' && text.startsWith(PROTECTED_PLACEHOLDER, position)) {
+                removeEnd = position + PROTECTED_PLACEHOLDER.length();
+            } else if (c == '&' && text.startsWith(HELLIP, position)) {
+                removeEnd = position + HELLIP.length();
+                replacement = "...";
+            }
+
+            if (removeEnd < 0) {
+                position++;
+                continue;
+            }
+
+            out = flush(out, text, copied, position);
+            if (replacement != null) {
+                out.append(replacement);
+            } else if (joinsToken(out, text, removeEnd)) {
+                return null;
+            }
+            copied = position = removeEnd;
+        }
+
+        if (out == null) {
+            return text;
+        }
+        out.append(text, copied, length);
+        return out.toString();
+    }
+
+    private static StringBuilder flush(StringBuilder out, String text, int from, int to) {
+        if (out == null) {
+            out = new StringBuilder(text.length());
+        }
+        out.append(text, from, to);
+        return out;
+    }
+
+    private static int matchTruncationMarker(String text, int position) {
+        for (String marker : TRUNCATION_MARKERS) {
+            if (text.startsWith(marker, position)) {
+                return marker.length();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Ende eines "Weiterlesen"-Links wie bei {@code <a class="more-link"[^>]*>.*?</a>}:
+     * zwischen Start-Tag und {@code </a>} darf kein Zeilenumbruch liegen.
+     * Liefert -1 ohne Treffer und -2, wenn im Link Kürzungsmarken stehen.
+     */
+    private static int findMoreLinkEnd(String text, int position) {
+        int tagEnd = text.indexOf('>', position + MORE_LINK_START.length());
+        if (tagEnd < 0) {
+            return -1;
+        }
+
+        for (int i = tagEnd + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isLineTerminator(c)) {
+                return -1;
+            }
+            if (c == '<' && text.startsWith(MORE_LINK_END, i)) {
+                return containsAny(text, position, i, TRUNCATION_MARKERS) ? -2 : i + MORE_LINK_END.length();
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    // Sucht nur im angegebenen Bereich, damit lange Texte mit vielen Shortcodes linear bleiben
+    private static boolean containsAny(String text, int from, int to, String... needles) {
+        for (int i = from; i < to; i++) {
+            for (String needle : needles) {
+                if (i + needle.length() <= to && text.startsWith(needle, i)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Prüft, ob nach dem Entfernen eines Abschnitts eine der gesuchten Zeichenfolgen
+     * über die Schnittstelle hinweg neu entsteht.
+     */
+    private static boolean joinsToken(StringBuilder out, String text, int resume) {
+        int tailStart = Math.max(0, out.length() - MAX_TOKEN_LENGTH);
+        for (String token : JOINABLE_TOKENS) {
+            for (int split = 1; split < token.length(); split++) {
+                int leftStart = out.length() - split;
+                if (leftStart >= tailStart
+                        && regionEquals(out, leftStart, token, 0, split)
+                        && text.regionMatches(resume, token, split, token.length() - split)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(CharSequence text, int offset, String token, int from, int length) {
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(offset + i) != token.charAt(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String trimTrailingEllipsis(String text) {
+        if (text.endsWith("...")) {
+            return text.substring(0, text.length() - 2);
+        }
+        if (text.endsWith("…")) {
+            return text.substring(0, text.length() - 1);
+        }
+        return text;
+    }
+
+    // Auch Referenz für ContentNormalizerTest
+    static String normalizeStepwise(String content) {
+        String processedContent = content;
+        for (Pattern pattern : TRUNCATION_PATTERNS) {
+            processedContent = pattern.matcher(processedContent).replaceAll("");
+        }
+
+        if (!processedContent.contains(PARAGRAPH_CLOSE) && processedContent.contains(PARAGRAPH_OPEN)) {
+            processedContent += PARAGRAPH_CLOSE;
+        }
+
+        processedContent = MORE_LINK.matcher(processedContent).replaceAll("");
+        processedContent = PROTECTED.matcher(processedContent).replaceAll("");
+        processedContent = ELLIPSIS_ENTITY.matcher(processedContent).replaceAll("...");
+        processedContent = SHORTCODE.matcher(processedContent).replaceAll("");
+
+        if (processedContent.endsWith("...") || processedContent.endsWith("…")) {
+            processedContent = TRAILING_DOTS.matcher(processedContent).replaceAll("");
+            processedContent = TRAILING_ELLIPSIS.matcher(processedContent).replaceAll("");
+        }
+        return processedContent;
+    }
+}
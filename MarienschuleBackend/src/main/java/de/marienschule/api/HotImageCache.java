@@ -0,0 +1,135 @@
+package de.marienschule.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hält die Bytes häufig abgerufener Bilder im Speicher, damit die Bilder der neuesten
+ * Artikel nicht bei jeder Anfrage von der Platte gelesen werden.
+ * Die Bilder liegen in direkten {@link ByteBuffer}s außerhalb des Heaps; verdrängt wird
+ * nach Byte-Größe in LRU-Reihenfolge, bis die Gesamtgröße wieder unter die Grenze fällt.
+ */
+class HotImageCache {
+
+    private final long capacityBytes;
+    private final long maxEntryBytes;
+    // Zugriffsreihenfolge: das älteste Element steht vorne und wird zuerst verdrängt
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    HotImageCache(long capacityBytes, long maxEntryBytes) {
+        this.capacityBytes = Math.max(0, capacityBytes);
+        this.maxEntryBytes = Math.min(Math.max(0, maxEntryBytes), this.capacityBytes);
+    }
+
+    /**
+     * Liefert die Bytes des Bildes oder {@code null}, wenn es zu groß für den Cache ist.
+     * Fehlt das Bild im Speicher oder hat sich sein Inhalt geändert, wird es von der Platte geladen.
+     * Der zurückgegebene Puffer ist eine eigene Sicht und darf vom Aufrufer verändert werden.
+     */
+    ByteBuffer get(ImageStore.ImageFile file) throws IOException {
+        synchronized (this) {
+            Entry entry = entries.get(file.getPath());
+            if (entry != null && entry.etag.equals(file.getEtag())) {
+                hits.incrementAndGet();
+                return entry.buffer.duplicate();
+            }
+        }
+
+        misses.incrementAndGet();
+        ByteBuffer buffer = load(file);
+        return buffer == null ? null : buffer.duplicate();
+    }
+
+    /**
+     * Lädt das Bild vorab in den Speicher, z.B. für die neuesten Artikel nach einem Refresh.
+     */
+    void warm(ImageStore.ImageFile file) throws IOException {
+        synchronized (this) {
+            Entry entry = entries.get(file.getPath());
+            if (entry != null && entry.etag.equals(file.getEtag())) {
+                return;
+            }
+        }
+        load(file);
+    }
+
+    private ByteBuffer load(ImageStore.ImageFile file) throws IOException {
+        if (file.getSize() <= 0 || file.getSize() > maxEntryBytes) {
+            return null;
+        }
+
+        // Außerhalb der Sperre lesen, damit gleichzeitige Treffer nicht auf die Platte warten
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) file.getSize());
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    // Datei ist kürzer als gemerkt, wurde also gerade ersetzt
+                    return null;
+                }
+            }
+        }
+        buffer.flip();
+        ByteBuffer readOnly = buffer.asReadOnlyBuffer();
+
+        synchronized (this) {
+            Entry previous = entries.put(file.getPath(), new Entry(file.getEtag(), readOnly));
+            if (previous != null) {
+                usedBytes -= previous.buffer.capacity();
+            }
+            usedBytes += readOnly.capacity();
+            evictToCapacity();
+        }
+        return readOnly;
+    }
+
+    private void evictToCapacity() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (usedBytes > capacityBytes && iterator.hasNext()) {
+            usedBytes -= iterator.next().buffer.capacity();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    synchronized void invalidate(Path path) {
+        Entry removed = entries.remove(path);
+        if (removed != null) {
+            usedBytes -= removed.buffer.capacity();
+        }
+    }
+
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (this) {
+            metrics.put("entries", entries.size());
+            metrics.put("usedBytes", usedBytes);
+        }
+        metrics.put("capacityBytes", capacityBytes);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+
+    private static final class Entry {
+        private final String etag;
+        private final ByteBuffer buffer;
+
+        private Entry(String etag, ByteBuffer buffer) {
+            this.etag = etag;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package de.marienschule.api;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Lädt Bilder unabhängig von der Artikel-Aktualisierung herunter.
+ * Eine feste Anzahl von Worker-Threads arbeitet eine begrenzte Warteschlange ab,
+ * jeder Download hat ein eigenes Timeout und wird bei Fehlern wiederholt.
+ * Ein fehlgeschlagenes Bild wird nur protokolliert und beim nächsten Refresh erneut angestoßen.
+ */
+class ImageDownloadPipeline {
+
+    private static final long RETRY_BACKOFF_MILLIS = 500;
+    private static final long THROUGHPUT_WINDOW_MILLIS = 60_000;
+
+    private final CloseableHttpClient httpClient;
+    private final RequestConfig requestConfig;
+    private final int retries;
+    private final ThreadPoolExecutor executor;
+    // Schlüssel der Downloads, die gerade warten oder laufen
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+    private final ConcurrentLinkedDeque<Long> recentCompletions = new ConcurrentLinkedDeque<>();
+
+    ImageDownloadPipeline(CloseableHttpClient httpClient, int workers, int queueCapacity,
+                          int timeoutMillis, int retries) {
+        this.httpClient = httpClient;
+        this.retries = Math.max(0, retries);
+        this.requestConfig = RequestConfig.custom()
+            .setConnectTimeout(timeoutMillis)
+            .setConnectionRequestTimeout(timeoutMillis)
+            .setSocketTimeout(timeoutMillis)
+            .build();
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "image-download-" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Reiht einen Download ein. Läuft für denselben Schlüssel bereits einer oder ist die
+     * Warteschlange voll, passiert nichts und es wird {@code false} geliefert.
+     *
+     * @param key         Schlüssel zur Duplikaterkennung (z.B. Artikel-ID oder URL-Hash)
+     * @param url         Quelle des Bildes
+     * @param destination Zieldatei, wird erst nach vollständigem Download ersetzt
+     * @param onLanded    wird mit der Zieldatei aufgerufen, sobald das Bild vorliegt
+     */
+    boolean submit(String key, String url, Path destination, Consumer<Path> onLanded) {
+        return submitTask(key, () -> {
+            if (download(url, destination)) {
+                onLanded.accept(destination);
+            }
+        });
+    }
+
+    /**
+     * Reiht eine Bildverarbeitung (z.B. das Erzeugen von Varianten) in denselben
+     * begrenzten Worker-Pool ein, mit derselben Duplikaterkennung wie Downloads.
+     */
+    boolean submitTask(String key, Runnable task) {
+        if (!pending.add(key)) {
+            return false;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error processing image task " + key + ": " + e.getMessage());
+                } finally {
+                    pending.remove(key);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            rejected.incrementAndGet();
+            System.err.println("Image queue full, skipping " + key);
+            return false;
+        }
+    }
+
+    /**
+     * Ob mindestens der angegebene Anteil der Warteschlange frei ist. Für Vorab-Downloads,
+     * die dringenderen Bildern nicht den Platz nehmen sollen.
+     */
+    boolean hasCapacity(double freeFraction) {
+        int free = executor.getQueue().remainingCapacity();
+        return free > 0 && free >= (free + executor.getQueue().size()) * freeFraction;
+    }
+
+    private boolean download(String url, Path destination) {
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            if (attempt > 0) {
+                retried.incrementAndGet();
+                try {
+                    Thread.sleep(RETRY_BACKOFF_MILLIS << (attempt - 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            try {
+                long bytes = fetch(url, destination);
+                bytesDownloaded.addAndGet(bytes);
+                completed.incrementAndGet();
+                recordCompletion();
+                return true;
+            } catch (Exception e) {
+                System.err.println("Error downloading image from " + url + " (attempt " + (attempt + 1)
+                    + " of " + (retries + 1) + "): " + e.getMessage());
+            }
+        }
+
+        failed.incrementAndGet();
+        return false;
+    }
+
+    private long fetch(String url, Path destination) throws IOException {
+        HttpGet request = new HttpGet(url);
+        request.setConfig(requestConfig);
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            HttpEntity entity = response.getEntity();
+            int responseCode = response.getStatusLine().getStatusCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                EntityUtils.consume(entity);
+                throw new IOException("HTTP error code: " + responseCode);
+            }
+
+            // Erst in eine temporäre Datei schreiben, damit nie ein halbes Bild ausgeliefert wird
+            Path tempFile = Files.createTempFile(destination.getParent(), destination.getFileName().toString(), ".part");
+            try (InputStream in = entity.getContent()) {
+                long bytes = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, destination, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return bytes;
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    private void recordCompletion() {
+        long now = System.currentTimeMillis();
+        recentCompletions.addLast(now);
+        trimCompletions(now);
+    }
+
+    private void trimCompletions(long now) {
+        Iterator<Long> iterator = recentCompletions.iterator();
+        while (iterator.hasNext() && iterator.next() < now - THROUGHPUT_WINDOW_MILLIS) {
+            iterator.remove();
+        }
+    }
+
+    Map<String, Object> getMetrics() {
+        trimCompletions(System.currentTimeMillis());
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", executor.getQueue().size());
+        metrics.put("activeDownloads", executor.getActiveCount());
+        metrics.put("completed", completed.get());
+        metrics.put("failed", failed.get());
+        metrics.put("retried", retried.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("bytesDownloaded", bytesDownloaded.get());
+        metrics.put("downloadsLastMinute", recentCompletions.size());
+        return metrics;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
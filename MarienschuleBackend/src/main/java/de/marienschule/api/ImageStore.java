@@ -0,0 +1,464 @@
+package de.marienschule.api;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Liefert die zwischengespeicherten Bilder direkt aus dem Dateisystem aus.
+ * Inhaltstyp, Größe und Inhalts-Hash werden einmal pro Datei ermittelt und gemerkt,
+ * sodass eine Anfrage ohne zusätzliche Dateisystemzugriffe auskommt. Die Übertragung
+ * läuft über Tomcats sendfile oder {@link FileChannel#transferTo}, ohne das Bild in den Heap zu laden.
+ * Häufig abgerufene Bilder kommen stattdessen aus dem {@link HotImageCache}.
+ */
+class ImageStore {
+
+    // Nur einfache Dateinamen, keine Pfadtrenner und kein ".." – Prüfung ohne Dateisystemzugriff
+    private static final Pattern VALID_FILENAME = Pattern.compile("[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*\\.(jpe?g|png|gif|webp)");
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Bilder ändern sich unter ihrer versionierten URL nie
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final int VERSION_LENGTH = 12;
+
+    // Feste Breiten für Feed-Vorschau, Liste und Detailansicht
+    static final int[] VARIANT_WIDTHS = {160, 480, 1080};
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final Path directory;
+    private final Map<String, ImageFile> files = new ConcurrentHashMap<>();
+    // Vorhandene Variantenbreiten je Originalbild, damit Anfragen mit w= nicht ins Leere suchen
+    private final Map<String, int[]> variantWidths = new ConcurrentHashMap<>();
+    // Wird erst nach dem Laden der Konfiguration gesetzt, bis dahin kommt alles von der Platte
+    private volatile HotImageCache hotCache;
+
+    ImageStore(Path directory) {
+        this.directory = directory.toAbsolutePath().normalize();
+    }
+
+    void setHotCache(HotImageCache hotCache) {
+        this.hotCache = hotCache;
+    }
+
+    static boolean isValidFilename(String filename) {
+        return filename != null && VALID_FILENAME.matcher(filename).matches();
+    }
+
+    /**
+     * Liefert die Metadaten eines Bildes oder {@code null}, wenn der Name ungültig ist
+     * oder die Datei (noch) nicht existiert.
+     */
+    ImageFile lookup(String filename) throws IOException {
+        if (!isValidFilename(filename)) {
+            return null;
+        }
+
+        ImageFile file = files.get(filename);
+        if (file != null) {
+            return file;
+        }
+
+        Path path = directory.resolve(filename);
+        try {
+            file = ImageFile.read(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        files.put(filename, file);
+        return file;
+    }
+
+    /**
+     * Verwirft die gemerkten Metadaten, z.B. nachdem ein Bild neu heruntergeladen wurde.
+     */
+    void invalidate(String filename) {
+        files.remove(filename);
+        variantWidths.remove(filename);
+        for (int width : VARIANT_WIDTHS) {
+            files.remove(variantFilename(filename, width));
+        }
+
+        HotImageCache cache = hotCache;
+        if (cache != null) {
+            cache.invalidate(directory.resolve(filename));
+            for (int width : VARIANT_WIDTHS) {
+                cache.invalidate(directory.resolve(variantFilename(filename, width)));
+            }
+        }
+    }
+
+    /**
+     * Lädt ein Bild samt seiner Varianten vorab in den Speicher-Cache.
+     * Noch nicht heruntergeladene Bilder werden übersprungen.
+     */
+    void warm(String filename) {
+        HotImageCache cache = hotCache;
+        if (cache == null) {
+            return;
+        }
+        try {
+            ImageFile original = lookup(filename);
+            if (original == null) {
+                return;
+            }
+            cache.warm(original);
+            for (int width : getVariantWidths(filename)) {
+                ImageFile variant = lookup(variantFilename(filename, width));
+                if (variant != null) {
+                    cache.warm(variant);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error warming image " + filename + ": " + e.getMessage());
+        }
+    }
+
+    static String variantFilename(String filename, int width) {
+        int extension = filename.lastIndexOf('.');
+        return filename.substring(0, extension) + "_w" + width + filename.substring(extension);
+    }
+
+    /**
+     * Liefert die kleinste Variante, die mindestens {@code width} Pixel breit ist,
+     * oder das Original, wenn keine passende Variante existiert.
+     */
+    ImageFile lookup(String filename, int width) throws IOException {
+        if (!isValidFilename(filename)) {
+            return null;
+        }
+        for (int variantWidth : getVariantWidths(filename)) {
+            if (variantWidth >= width) {
+                ImageFile variant = lookup(variantFilename(filename, variantWidth));
+                if (variant != null) {
+                    return variant;
+                }
+            }
+        }
+        return lookup(filename);
+    }
+
+    private int[] getVariantWidths(String filename) throws IOException {
+        int[] widths = variantWidths.get(filename);
+        if (widths == null) {
+            widths = Arrays.stream(VARIANT_WIDTHS)
+                .filter(width -> Files.exists(directory.resolve(variantFilename(filename, width))))
+                .toArray();
+            variantWidths.put(filename, widths);
+        }
+        return widths;
+    }
+
+    /**
+     * Versionierte URLs der vorhandenen Varianten, nach Breite sortiert.
+     */
+    Map<Integer, String> variantUrls(String filename) {
+        try {
+            Map<Integer, String> urls = new LinkedHashMap<>();
+            for (int width : getVariantWidths(filename)) {
+                ImageFile variant = lookup(variantFilename(filename, width));
+                if (variant != null) {
+                    urls.put(width, "/api/images/" + filename + "?w=" + width
+                        + "&v=" + variant.getEtag().substring(0, VERSION_LENGTH));
+                }
+            }
+            return urls;
+        } catch (IOException e) {
+            System.err.println("Error reading image variants of " + filename + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Erzeugt die verkleinerten Varianten eines Originalbildes mit reinem ImageIO.
+     * Breiten, die nicht kleiner als das Original sind, werden übersprungen.
+     * Varianten mit Transparenz werden als PNG geschrieben, alle anderen als JPEG.
+     */
+    Map<Integer, String> createVariants(String filename) throws IOException {
+        Path original = directory.resolve(filename);
+        BufferedImage source = ImageIO.read(original.toFile());
+        if (source == null) {
+            // Format wird von ImageIO nicht unterstützt (z.B. WebP), dann gibt es nur das Original
+            return Collections.emptyMap();
+        }
+
+        boolean alpha = source.getColorModel().hasAlpha();
+        for (int width : VARIANT_WIDTHS) {
+            if (width >= source.getWidth()) {
+                continue;
+            }
+            int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+            BufferedImage scaled = scale(source, width, height, alpha);
+
+            Path target = directory.resolve(variantFilename(filename, width));
+            Path tempFile = Files.createTempFile(directory, target.getFileName().toString(), ".part");
+            try {
+                if (alpha) {
+                    ImageIO.write(scaled, "png", tempFile.toFile());
+                } else {
+                    writeJpeg(scaled, tempFile);
+                }
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        invalidate(filename);
+        return variantUrls(filename);
+    }
+
+    /**
+     * Verkleinert schrittweise um höchstens die Hälfte, damit bilineare Interpolation
+     * auch bei starker Verkleinerung keine Treppenstufen erzeugt.
+     */
+    private static BufferedImage scale(BufferedImage source, int targetWidth, int targetHeight, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * URL eines Bildes mit Inhalts-Version, damit Clients es dauerhaft cachen dürfen.
+     */
+    String versionedUrl(String filename) {
+        try {
+            ImageFile file = lookup(filename);
+            if (file != null) {
+                return "/api/images/" + filename + "?v=" + file.getEtag().substring(0, VERSION_LENGTH);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading image " + filename + ": " + e.getMessage());
+        }
+        return "/api/images/" + filename;
+    }
+
+    /**
+     * Schreibt das Bild in die Antwort. Unterstützt bedingte Anfragen (304),
+     * einen einzelnen Byte-Bereich (206) und HEAD.
+     */
+    void serve(ImageFile file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        if (webRequest.checkNotModified(file.getEtag(), file.getLastModified())) {
+            return;
+        }
+
+        long start = 0;
+        long end = file.getSize() - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && isIfRangeSatisfied(request, file)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = null;
+            }
+
+            // Mehrere Bereiche werden nicht unterstützt, dann gibt es einfach das ganze Bild
+            if (ranges != null && ranges.size() == 1) {
+                if (!isSatisfiable(ranges.get(0), file.getSize())) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.getSize());
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = ranges.get(0).getRangeStart(file.getSize());
+                end = ranges.get(0).getRangeEnd(file.getSize());
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.getSize());
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentType(file.getContentType());
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        HotImageCache cache = hotCache;
+        ByteBuffer buffer = cache == null ? null : cache.get(file);
+        if (buffer != null) {
+            buffer.position((int) start).limit((int) (start + length));
+            OutputStream out = response.getOutputStream();
+            Channels.newChannel(out).write(buffer);
+            out.flush();
+            return;
+        }
+
+        transfer(file.getPath(), start, length, request, response);
+    }
+
+    private static boolean isIfRangeSatisfied(HttpServletRequest request, ImageFile file) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals("\"" + file.getEtag() + "\"");
+    }
+
+    private static boolean isSatisfiable(HttpRange range, long size) {
+        try {
+            return size > 0 && range.getRangeStart(size) < size;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void transfer(Path path, long start, long length, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat überträgt die Datei nach der Rückkehr selbst per sendfile
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, target);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Einmal ermittelte Metadaten eines Bildes.
+     */
+    static final class ImageFile {
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+        private final String contentType;
+        private final String etag;
+
+        private ImageFile(Path path, long size, long lastModified, String contentType, String etag) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.etag = etag;
+        }
+
+        static ImageFile read(Path path) throws IOException {
+            long size = Files.size(path);
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+
+            byte[] header = new byte[12];
+            String etag;
+            try (InputStream in = Files.newInputStream(path)) {
+                int read = in.readNBytes(header, 0, header.length);
+                etag = DigestUtils.md5DigestAsHex(
+                    new SequenceInputStream(new ByteArrayInputStream(header, 0, read), in));
+            }
+            return new ImageFile(path, size, lastModified, detectContentType(header), etag);
+        }
+
+        /**
+         * Erkennt das Format an den ersten Bytes statt an der Dateiendung,
+         * da die Bilder unabhängig vom Format als .jpg gespeichert werden.
+         */
+        static String detectContentType(byte[] header) {
+            if ((header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8) {
+                return "image/jpeg";
+            }
+            if ((header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+                return "image/png";
+            }
+            if (header[0] == 'G' && header[1] == 'I' && header[2] == 'F') {
+                return "image/gif";
+            }
+            if (header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                    && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+                return "image/webp";
+            }
+            return "application/octet-stream";
+        }
+
+        Path getPath() { return path; }
+        long getSize() { return size; }
+        long getLastModified() { return lastModified; }
+        String getContentType() { return contentType; }
+        String getEtag() { return etag; }
+    }
+}
@@ -0,0 +1,359 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Leitet die Bilder im Artikelinhalt über den eigenen Server um.
+ * {@code src} und {@code srcset} von {@code <img>} und von {@code <source>} innerhalb von
+ * {@code <picture>}, die auf die WordPress-Seite zeigen, werden durch
+ * {@code /api/images/inline_<hash>.<ext>} ersetzt. {@code <source>} in {@code <video>} und
+ * {@code <audio>} oder mit einem {@code type} außer {@code image/*} bleibt unverändert.
+ * Der Dateiname hängt nur von der Quell-URL ab, dasselbe Bild in mehreren Artikeln wird also
+ * einmal geladen. Die Zuordnung Dateiname → Quell-URL wird gespeichert, damit fehlende Bilder
+ * auch nach einem Neustart nachgeladen werden können; bis dahin leitet {@link #originUrl} auf
+ * das Original weiter.
+ */
+final class InlineImageProxy {
+
+    static final String FILENAME_PREFIX = "inline_";
+    private static final String URL_PREFIX = "/api/images/";
+    private static final int HASH_LENGTH = 24;
+
+    // Neben den Bildern auch die umgebenden Elemente, um <source> einordnen zu können
+    private static final Pattern MEDIA_TAG = Pattern.compile(
+        "<(/?)(img|source|picture|video|audio)\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern TYPE_ATTRIBUTE = Pattern.compile(
+        "\\stype\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))", Pattern.CASE_INSENSITIVE);
+    // data-src/data-srcset verwenden Lazy-Loading-Plugins statt src/srcset
+    private static final Pattern IMAGE_ATTRIBUTE = Pattern.compile(
+        "(\\s(?:data-)?(src|srcset)\\s*=\\s*)(\"([^\"]*)\"|'([^']*)')", Pattern.CASE_INSENSITIVE);
+    private static final Pattern EXTENSION = Pattern.compile("\\.(jpe?g|png|gif|webp)$");
+
+    private final URI base;
+    private final String host;
+    private final Path directory;
+    private final Path indexFile;
+    private final ObjectMapper objectMapper;
+    private final ImageDownloadPipeline pipeline;
+    private final ImageStore imageStore;
+
+    // Dateiname → Quell-URL aller jemals umgeschriebenen Bilder
+    private final Map<String, String> index = new ConcurrentHashMap<>();
+    // Teilmenge von index, deren Datei noch fehlt
+    private final Map<String, String> missing = new ConcurrentHashMap<>();
+    private final AtomicBoolean indexDirty = new AtomicBoolean();
+
+    private final AtomicLong rewrittenUrls = new AtomicLong();
+    private final AtomicLong prefetchSubmitted = new AtomicLong();
+    private final AtomicLong prefetched = new AtomicLong();
+    private final AtomicLong originRedirects = new AtomicLong();
+    private final AtomicLong restoredUrls = new AtomicLong();
+
+    InlineImageProxy(String wordpressBaseUrl, Path directory, Path indexFile, ObjectMapper objectMapper,
+                     ImageDownloadPipeline pipeline, ImageStore imageStore) {
+        this.base = URI.create(wordpressBaseUrl.endsWith("/") ? wordpressBaseUrl : wordpressBaseUrl + "/");
+        this.host = withoutWww(base.getHost());
+        this.directory = directory;
+        this.indexFile = indexFile;
+        this.objectMapper = objectMapper;
+        this.pipeline = pipeline;
+        this.imageStore = imageStore;
+    }
+
+    /**
+     * Ersetzt die Bild-URLs im HTML. Liefert denselben String, wenn nichts umzuschreiben war.
+     * Bereits umgeschriebene URLs zeigen auf den eigenen Server und bleiben daher unverändert.
+     * Frühere Versionen haben auch Video- und Audioquellen umgeschrieben; solche URLs werden
+     * wieder durch das Original ersetzt.
+     */
+    String rewrite(String html) {
+        if (html == null || html.isEmpty()) {
+            return html;
+        }
+
+        Matcher tags = MEDIA_TAG.matcher(html);
+        StringBuilder out = null;
+        int copied = 0;
+        int pictureDepth = 0;
+        int mediaDepth = 0;
+        while (tags.find()) {
+            boolean closing = !tags.group(1).isEmpty();
+            String name = tags.group(2).toLowerCase(Locale.ROOT);
+            if (name.equals("picture")) {
+                pictureDepth = Math.max(0, pictureDepth + (closing ? -1 : 1));
+                continue;
+            }
+            if (name.equals("video") || name.equals("audio")) {
+                mediaDepth = Math.max(0, mediaDepth + (closing ? -1 : 1));
+                continue;
+            }
+            if (closing) {
+                continue;
+            }
+
+            String tag = tags.group();
+            boolean image = name.equals("img") || (pictureDepth > 0 && mediaDepth == 0 && hasImageType(tag));
+            String rewritten = image ? rewriteTag(tag, this::rewriteUrl) : rewriteTag(tag, this::restoreUrl);
+            if (!rewritten.equals(tag)) {
+                if (out == null) {
+                    out = new StringBuilder(html.length());
+                }
+                out.append(html, copied, tags.start()).append(rewritten);
+                copied = tags.end();
+            }
+        }
+
+        if (out == null) {
+            return html;
+        }
+        return out.append(html, copied, html.length()).toString();
+    }
+
+    // Ohne type-Attribut gilt eine Quelle in <picture> als Bild
+    private static boolean hasImageType(String tag) {
+        Matcher type = TYPE_ATTRIBUTE.matcher(tag);
+        if (!type.find()) {
+            return true;
+        }
+        String value = type.group(1) != null ? type.group(1) : type.group(2) != null ? type.group(2) : type.group(3);
+        return value.trim().toLowerCase(Locale.ROOT).startsWith("image/");
+    }
+
+    private String rewriteTag(String tag, UnaryOperator<String> urls) {
+        Matcher attributes = IMAGE_ATTRIBUTE.matcher(tag);
+        StringBuilder out = new StringBuilder(tag.length());
+        while (attributes.find()) {
+            boolean doubleQuoted = attributes.group(4) != null;
+            String value = doubleQuoted ? attributes.group(4) : attributes.group(5);
+            String replaced = attributes.group(2).equalsIgnoreCase("srcset")
+                ? rewriteSrcset(value, urls) : urls.apply(value);
+            char quote = doubleQuoted ? '"' : '\'';
+            attributes.appendReplacement(out, Matcher.quoteReplacement(attributes.group(1) + quote + replaced + quote));
+        }
+        attributes.appendTail(out);
+        return out.toString();
+    }
+
+    // srcset: durch Komma getrennte Kandidaten aus URL und optionaler Breiten- oder Dichteangabe
+    private static String rewriteSrcset(String srcset, UnaryOperator<String> urls) {
+        StringBuilder out = new StringBuilder(srcset.length());
+        for (String candidate : srcset.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int space = indexOfWhitespace(trimmed);
+            String url = space < 0 ? trimmed : trimmed.substring(0, space);
+            if (out.length() > 0) {
+                out.append(", ");
+            }
+            out.append(urls.apply(url));
+            if (space >= 0) {
+                out.append(trimmed.substring(space));
+            }
+        }
+        return out.toString();
+    }
+
+    private static int indexOfWhitespace(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String rewriteUrl(String value) {
+        String source = resolve(unescape(value.trim()));
+        if (source == null) {
+            return value;
+        }
+
+        String filename = filenameFor(source);
+        if (index.putIfAbsent(filename, source) == null) {
+            indexDirty.set(true);
+            if (!Files.exists(directory.resolve(filename))) {
+                missing.put(filename, source);
+            }
+        }
+        rewrittenUrls.incrementAndGet();
+        return URL_PREFIX + filename;
+    }
+
+    /**
+     * Macht das Umschreiben einer Quelle rückgängig, die kein Bild ist, und vergisst die Datei.
+     */
+    private String restoreUrl(String value) {
+        if (!value.startsWith(URL_PREFIX + FILENAME_PREFIX)) {
+            return value;
+        }
+        String filename = value.substring(URL_PREFIX.length());
+        String source = index.remove(filename);
+        if (source == null) {
+            return value;
+        }
+
+        missing.remove(filename);
+        indexDirty.set(true);
+        try {
+            Files.deleteIfExists(directory.resolve(filename));
+        } catch (IOException e) {
+            System.err.println("Error deleting inline image " + filename + ": " + e.getMessage());
+        }
+        imageStore.invalidate(filename);
+        restoredUrls.incrementAndGet();
+        return source.replace("&", "&#038;");
+    }
+
+    /**
+     * Absolute URL des Bildes, wenn es von der WordPress-Seite stammt, sonst {@code null}.
+     */
+    private String resolve(String url) {
+        if (url.isEmpty() || url.startsWith("data:") || url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        try {
+            URI resolved = base.resolve(new URI(url.replace(" ", "%20")));
+            String scheme = resolved.getScheme();
+            if (resolved.getHost() == null || !withoutWww(resolved.getHost()).equalsIgnoreCase(host)
+                    || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+                return null;
+            }
+            return resolved.toString();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String withoutWww(String host) {
+        return host != null && host.startsWith("www.") ? host.substring(4) : host;
+    }
+
+    // WordPress maskiert & in Attributen als &#038; bzw. &amp;
+    private static String unescape(String url) {
+        return url.indexOf('&') < 0 ? url : url.replace("&#038;", "&").replace("&amp;", "&");
+    }
+
+    static String filenameFor(String source) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        StringBuilder name = new StringBuilder(FILENAME_PREFIX);
+        for (int i = 0; i < HASH_LENGTH / 2; i++) {
+            name.append(Character.forDigit((digest[i] >> 4) & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+
+        // Die Endung dient nur der Namensprüfung, den Inhaltstyp erkennt ImageStore an den Bytes
+        String path = URI.create(source).getPath();
+        Matcher extension = EXTENSION.matcher(path == null ? "" : path.toLowerCase(Locale.ROOT));
+        return name.append('.').append(extension.find() ? extension.group(1) : "jpg").toString();
+    }
+
+    /**
+     * Reiht fehlende Bilder zum Herunterladen ein. Die Hälfte der Warteschlange bleibt für
+     * Beitragsbilder frei; was nicht mehr hineinpasst, folgt beim nächsten Aufruf.
+     */
+    void prefetchMissing() {
+        for (Map.Entry<String, String> entry : missing.entrySet()) {
+            if (!pipeline.hasCapacity(0.5)) {
+                return;
+            }
+            String filename = entry.getKey();
+            if (pipeline.submit("inline-" + filename, entry.getValue(), directory.resolve(filename),
+                    landed -> onLanded(filename))) {
+                prefetchSubmitted.incrementAndGet();
+            }
+        }
+    }
+
+    private void onLanded(String filename) {
+        missing.remove(filename);
+        imageStore.invalidate(filename);
+        prefetched.incrementAndGet();
+    }
+
+    /**
+     * Quelle eines Bildes, dessen Datei fehlt, für eine Weiterleitung; stößt dessen Download an.
+     */
+    String originUrl(String filename) {
+        String source = index.get(filename);
+        if (source != null) {
+            missing.put(filename, source);
+            originRedirects.incrementAndGet();
+            pipeline.submit("inline-" + filename, source, directory.resolve(filename), landed -> onLanded(filename));
+        }
+        return source;
+    }
+
+    void load() {
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        try {
+            Map<String, String> stored = objectMapper.readValue(Files.readAllBytes(indexFile),
+                new TypeReference<Map<String, String>>() {});
+            for (Map.Entry<String, String> entry : stored.entrySet()) {
+                if (ImageStore.isValidFilename(entry.getKey())) {
+                    index.put(entry.getKey(), entry.getValue());
+                    if (!Files.exists(directory.resolve(entry.getKey()))) {
+                        missing.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            System.out.println("Loaded " + index.size() + " inline images, " + missing.size() + " still to download");
+        } catch (IOException e) {
+            System.err.println("Error loading inline image index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Schreibt die Zuordnung, sofern seit dem letzten Mal Bilder hinzugekommen sind.
+     */
+    void save() {
+        if (!indexDirty.compareAndSet(true, false)) {
+            return;
+        }
+        try {
+            ArticleStore.writeAtomically(indexFile, objectMapper.writeValueAsBytes(new TreeMap<>(index)));
+        } catch (IOException e) {
+            indexDirty.set(true);
+            System.err.println("Error saving inline image index: " + e.getMessage());
+        }
+    }
+
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("images", index.size());
+        metrics.put("missing", missing.size());
+        metrics.put("rewrittenUrls", rewrittenUrls.get());
+        metrics.put("prefetchSubmitted", prefetchSubmitted.get());
+        metrics.put("prefetched", prefetched.get());
+        metrics.put("originRedirects", originRedirects.get());
+        metrics.put("restoredUrls", restoredUrls.get());
+        return metrics;
+    }
+}
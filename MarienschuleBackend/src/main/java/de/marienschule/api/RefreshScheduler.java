@@ -0,0 +1,106 @@
+package de.marienschule.api;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bestimmt den Abstand bis zur nächsten Aktualisierung aus dem bisherigen Veröffentlichungsmuster.
+ * Aus den Zeitpunkten der letzten Artikel entsteht ein Histogramm über die 168 Stunden einer
+ * Woche; in Stunden, in denen die Schule üblicherweise veröffentlicht, wird häufiger gefragt.
+ * Während der Schulzeit und nach frischen Änderungen gilt eine kurze Obergrenze, in ruhigen
+ * Phasen (Ferien) der längste Abstand. Jeder Abstand wird um bis zu 10 % gestreut.
+ */
+final class RefreshScheduler {
+
+    private static final int HOURS_PER_WEEK = 7 * 24;
+    // Nur die neuesten Artikel zählen, damit sich das Muster mit dem Schuljahr ändern kann
+    private static final int LEARN_POSTS = 300;
+    private static final int SCHOOL_DAY_START_HOUR = 7;
+    private static final int SCHOOL_DAY_END_HOUR = 17;
+    private static final Duration SCHOOL_HOURS_MAX_DELAY = Duration.ofMinutes(15);
+    private static final Duration RECENT_ACTIVITY = Duration.ofHours(3);
+    private static final Duration QUIET_PERIOD = Duration.ofDays(14);
+    private static final double JITTER = 0.1;
+    // Pseudo-Artikel pro Wochenstunde, damit Stunden ohne Artikel nicht sofort bei null landen
+    private static final double SMOOTHING = 0.1;
+
+    private final Duration minDelay;
+    private final Duration maxDelay;
+
+    RefreshScheduler(Duration minDelay, Duration maxDelay) {
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay.compareTo(minDelay) < 0 ? minDelay : maxDelay;
+    }
+
+    /**
+     * @param postTimes  Veröffentlichungszeitpunkte, die neuesten zuerst
+     * @param lastChange Zeitpunkt des letzten Refreshs, der Änderungen gefunden hat, oder {@code null}
+     */
+    Plan plan(LocalDateTime now, List<LocalDateTime> postTimes, LocalDateTime lastChange) {
+        int[] histogram = new int[HOURS_PER_WEEK];
+        int count = Math.min(postTimes.size(), LEARN_POSTS);
+        for (int i = 0; i < count; i++) {
+            histogram[hourOfWeek(postTimes.get(i))]++;
+        }
+
+        // Geglättete Wahrscheinlichkeit für diese und die nächste Stunde, 1.0 entspricht dem Wochenmittel;
+        // ohne Daten ist jede Stunde gleich wahrscheinlich
+        int hour = hourOfWeek(now);
+        double hits = histogram[hour] + histogram[(hour + 1) % HOURS_PER_WEEK] + 2 * SMOOTHING;
+        double intensity = hits / (count + HOURS_PER_WEEK * SMOOTHING) * HOURS_PER_WEEK / 2;
+
+        Duration delay = clamp(Duration.ofSeconds((long) (maxDelay.getSeconds() / (1 + intensity))));
+        String reason = String.format("posting intensity %.2f", intensity);
+
+        LocalDateTime newestPost = postTimes.isEmpty() ? null : postTimes.get(0);
+        if (lastChange != null && lastChange.isAfter(now.minus(RECENT_ACTIVITY))) {
+            delay = minDelay;
+            reason = "recent activity";
+        } else if (newestPost == null || newestPost.isBefore(now.minus(QUIET_PERIOD))) {
+            delay = maxDelay;
+            reason = "quiet period";
+        } else if (isSchoolHours(now) && delay.compareTo(SCHOOL_HOURS_MAX_DELAY) > 0) {
+            delay = clamp(SCHOOL_HOURS_MAX_DELAY);
+            reason = "school hours";
+        }
+
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-JITTER, JITTER);
+        return new Plan(Duration.ofMillis((long) (delay.toMillis() * factor)), reason);
+    }
+
+    private Duration clamp(Duration delay) {
+        if (delay.compareTo(minDelay) < 0) {
+            return minDelay;
+        }
+        return delay.compareTo(maxDelay) > 0 ? maxDelay : delay;
+    }
+
+    private static int hourOfWeek(LocalDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * 24 + time.getHour();
+    }
+
+    private static boolean isSchoolHours(LocalDateTime time) {
+        DayOfWeek day = time.getDayOfWeek();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY
+            && time.getHour() >= SCHOOL_DAY_START_HOUR && time.getHour() < SCHOOL_DAY_END_HOUR;
+    }
+
+    /**
+     * Der gewählte Abstand und warum.
+     */
+    static final class Plan {
+        private final Duration delay;
+        private final String reason;
+
+        private Plan(Duration delay, String reason) {
+            this.delay = delay;
+            this.reason = reason;
+        }
+
+        Duration getDelay() { return delay; }
+        String getReason() { return reason; }
+    }
+}
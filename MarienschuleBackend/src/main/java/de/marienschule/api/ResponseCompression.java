@@ -0,0 +1,125 @@
+package de.marienschule.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-Varianten der vorserialisierten Antworten. Komprimiert wird nur einmal beim Aufbau
+ * eines Snapshots, mit höchster Stufe; pro Anfrage wird lediglich anhand von
+ * {@code Accept-Encoding} die passende Variante gewählt. Jeder Service hat eine eigene
+ * Instanz mit eigenen Zählern.
+ */
+final class ResponseCompression {
+
+    // Kleine Antworten werden durch Gzip kaum kleiner, der Kopf kostet allein schon 18 Bytes
+    private static final int MIN_SIZE = 512;
+
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong servedGzip = new AtomicLong();
+    private final AtomicLong servedIdentity = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    ResponseCompression() {
+    }
+
+    /**
+     * Komprimiert einen Body oder liefert {@code null}, wenn sich das nicht lohnt.
+     */
+    byte[] gzip(byte[] body) {
+        if (body.length < MIN_SIZE) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] compressed = bytes.toByteArray();
+        if (compressed.length >= body.length) {
+            return null;
+        }
+        compressedResponses.incrementAndGet();
+        originalBytes.addAndGet(body.length);
+        compressedBytes.addAndGet(compressed.length);
+        return compressed;
+    }
+
+    /**
+     * Prüft, ob der Client laut {@code Accept-Encoding} Gzip annimmt (auch über {@code *}).
+     * Eine ausdrückliche Angabe zu {@code gzip} hat Vorrang vor {@code *}, sodass z.B.
+     * {@code gzip;q=0, *} Gzip ablehnt.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        double gzipQuality = -1;
+        double wildcardQuality = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim();
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                gzipQuality = Math.max(gzipQuality, quality(tokens));
+            } else if (coding.equals("*")) {
+                wildcardQuality = Math.max(wildcardQuality, quality(tokens));
+            }
+        }
+        // q=0 bedeutet ausdrücklich "nicht erwünscht"
+        return gzipQuality >= 0 ? gzipQuality > 0 : wildcardQuality > 0;
+    }
+
+    private static double quality(String[] tokens) {
+        double quality = 1;
+        for (int i = 1; i < tokens.length; i++) {
+            String parameter = tokens[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    quality = Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    quality = 0;
+                }
+            }
+        }
+        return quality;
+    }
+
+    void recordServed(WordPressService.CachedResponse response, boolean gzip) {
+        if (gzip) {
+            servedGzip.incrementAndGet();
+            bytesSaved.addAndGet(response.getBody().length - response.getGzipBody().length);
+        } else {
+            servedIdentity.incrementAndGet();
+        }
+    }
+
+    Map<String, Object> getMetrics() {
+        long original = originalBytes.get();
+        long compressed = compressedBytes.get();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("precompressedResponses", compressedResponses.get());
+        metrics.put("originalBytes", original);
+        metrics.put("compressedBytes", compressed);
+        metrics.put("ratio", original == 0 ? 0.0 : Math.round(1000.0 * compressed / original) / 1000.0);
+        metrics.put("servedGzip", servedGzip.get());
+        metrics.put("servedIdentity", servedIdentity.get());
+        metrics.put("bytesSaved", bytesSaved.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,160 @@
+package de.marienschule.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Veröffentlicht den Server-Status als unveränderliches Objekt über eine atomare Referenz.
+ * Statuswechsel landen zusätzlich in einem Ringpuffer. Die Statusdatei wird nicht bei jeder
+ * Änderung geschrieben, sondern kurz verzögert von einem eigenen Thread, sodass mehrere
+ * Änderungen in Folge zu einem Schreibvorgang zusammenfallen.
+ */
+final class ServerStatusTracker {
+
+    private static final int HISTORY_SIZE = 20;
+    private static final long PERSIST_DELAY_MILLIS = 2000;
+
+    private final Path statusFile;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<WordPressService.ServerStatus> current =
+        new AtomicReference<>(WordPressService.ServerStatus.starting());
+
+    // Ringpuffer der letzten Statuswechsel; transitionCount zählt alle jemals eingetragenen
+    private final AtomicReferenceArray<WordPressService.ServerStatus.Transition> history =
+        new AtomicReferenceArray<>(HISTORY_SIZE);
+    private final AtomicLong transitionCount = new AtomicLong();
+
+    private final AtomicBoolean persistPending = new AtomicBoolean();
+    private final AtomicLong persisted = new AtomicLong();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "server-status-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    ServerStatusTracker(Path statusFile, ObjectMapper objectMapper) {
+        this.statusFile = statusFile;
+        this.objectMapper = objectMapper;
+    }
+
+    WordPressService.ServerStatus current() {
+        return current.get();
+    }
+
+    /**
+     * Setzt einen neuen Status. Ein Wechsel des Zustands wird in der Historie vermerkt.
+     */
+    void publish(WordPressService.ServerStatus.Status status, String message, LocalDateTime lastUpdate) {
+        WordPressService.ServerStatus next = new WordPressService.ServerStatus(status, message, lastUpdate);
+        WordPressService.ServerStatus previous = current.getAndSet(next);
+        if (previous.getStatus() != status) {
+            record(new WordPressService.ServerStatus.Transition(
+                previous.getStatus(), status, LocalDateTime.now(), message));
+        }
+        schedulePersist();
+    }
+
+    private void record(WordPressService.ServerStatus.Transition transition) {
+        long index = transitionCount.getAndIncrement();
+        history.set((int) (index % HISTORY_SIZE), transition);
+    }
+
+    /**
+     * Die letzten Statuswechsel, der neueste zuerst.
+     */
+    List<WordPressService.ServerStatus.Transition> history() {
+        long count = transitionCount.get();
+        int size = (int) Math.min(count, HISTORY_SIZE);
+        List<WordPressService.ServerStatus.Transition> transitions = new ArrayList<>(size);
+        for (long i = count - 1; i >= count - size; i--) {
+            WordPressService.ServerStatus.Transition transition = history.get((int) (i % HISTORY_SIZE));
+            if (transition != null) {
+                transitions.add(transition);
+            }
+        }
+        return Collections.unmodifiableList(transitions);
+    }
+
+    /**
+     * Übernimmt Status und Historie aus der Statusdatei des letzten Laufs.
+     */
+    void load() {
+        if (!Files.exists(statusFile)) {
+            schedulePersist();
+            return;
+        }
+
+        try {
+            WordPressService.ServerStatus loaded =
+                objectMapper.readValue(Files.readAllBytes(statusFile), WordPressService.ServerStatus.class);
+            List<WordPressService.ServerStatus.Transition> transitions = new ArrayList<>(loaded.getHistory());
+            // Die Datei enthält den neuesten Wechsel zuerst
+            Collections.reverse(transitions);
+            for (WordPressService.ServerStatus.Transition transition : transitions) {
+                record(transition);
+            }
+            current.set(new WordPressService.ServerStatus(loaded.getStatus(), loaded.getMessage(), loaded.getLastUpdate()));
+            System.out.println("Loaded server status from cache.");
+        } catch (Exception e) {
+            System.err.println("Error loading server status: " + e.getMessage());
+            publish(WordPressService.ServerStatus.Status.ERROR,
+                "Fehler beim Laden des Server-Status: " + e.getMessage(), LocalDateTime.now());
+        }
+    }
+
+    private void schedulePersist() {
+        // Nur ein Schreibvorgang steht aus; spätere Änderungen schreibt er gleich mit
+        if (persistPending.compareAndSet(false, true)) {
+            try {
+                writer.schedule(this::persist, PERSIST_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                persistPending.set(false);
+            }
+        }
+    }
+
+    private void persist() {
+        persistPending.set(false);
+        try {
+            ArticleStore.writeAtomically(statusFile,
+                objectMapper.writeValueAsBytes(current.get().withHistory(history())));
+            persisted.incrementAndGet();
+        } catch (IOException e) {
+            System.err.println("Error saving server status: " + e.getMessage());
+        }
+    }
+
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("status", current.get().getStatus());
+        metrics.put("transitions", transitionCount.get());
+        metrics.put("persisted", persisted.get());
+        return metrics;
+    }
+
+    /**
+     * Schreibt einen noch ausstehenden Stand sofort und beendet den Schreib-Thread.
+     */
+    void shutdown() {
+        writer.shutdownNow();
+        if (persistPending.get()) {
+            persist();
+        }
+    }
+}
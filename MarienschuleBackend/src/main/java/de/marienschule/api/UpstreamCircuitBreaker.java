@@ -0,0 +1,168 @@
+package de.marienschule.api;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Schutzschalter für die Anfragen an WordPress.
+ * Nach mehreren Fehlern in Folge (Verbindungsfehler, Timeouts, 5xx) öffnet er sich: Anfragen
+ * schlagen dann sofort fehl, statt auf die Timeouts zu warten. Nach Ablauf der Wartezeit lässt
+ * er eine einzelne Probeanfrage durch (halb offen). Gelingt sie, schließt er sich wieder,
+ * sonst verdoppelt sich die Wartezeit bis zu einer Obergrenze, mit zufälliger Streuung.
+ */
+class UpstreamCircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long baseOpenMillis;
+    private final long maxOpenMillis;
+    private final Consumer<State> listener;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    // Wie oft der Schalter seit dem letzten Erfolg geöffnet hat, bestimmt die Wartezeit
+    private int trips;
+    private long openUntil;
+    private boolean probeInFlight;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    UpstreamCircuitBreaker(int failureThreshold, long baseOpenMillis, long maxOpenMillis, Consumer<State> listener) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseOpenMillis = Math.max(1, baseOpenMillis);
+        this.maxOpenMillis = Math.max(this.baseOpenMillis, maxOpenMillis);
+        this.listener = listener;
+    }
+
+    /**
+     * Muss vor jeder Anfrage aufgerufen werden. Jede Anfrage endet danach mit
+     * {@link #recordSuccess()} oder {@link #recordFailure()}; eine Probeanfrage, die ohne
+     * Ergebnis abbricht, zusätzlich mit {@link #release()}.
+     *
+     * @return {@code true}, wenn diese Anfrage die Probeanfrage im halb offenen Zustand ist
+     * @throws OpenException wenn der Schalter offen ist oder bereits eine Probeanfrage läuft
+     */
+    boolean acquire() throws OpenException {
+        boolean probe = false;
+        State changed = null;
+        synchronized (this) {
+            if (state == State.OPEN && System.currentTimeMillis() >= openUntil) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+                changed = state;
+            }
+            if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+                rejected.incrementAndGet();
+                throw new OpenException(getRetryInMillis());
+            }
+            if (state == State.HALF_OPEN) {
+                probeInFlight = true;
+                probe = true;
+            }
+        }
+        notifyListener(changed);
+        return probe;
+    }
+
+    /**
+     * Beendet eine Probeanfrage, die weder Erfolg noch Fehler ergeben hat (z.B. eine Antwort,
+     * die sich nicht verarbeiten ließ). Der Schalter bleibt halb offen, die nächste Anfrage
+     * wird zur neuen Probe.
+     */
+    synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * Ohne Seiteneffekt: ob eine Anfrage derzeit überhaupt eine Chance hätte.
+     */
+    synchronized boolean allowsRequests() {
+        return state == State.CLOSED
+            || (state == State.OPEN && System.currentTimeMillis() >= openUntil)
+            || (state == State.HALF_OPEN && !probeInFlight);
+    }
+
+    void recordSuccess() {
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            trips = 0;
+            probeInFlight = false;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                changed = state;
+            }
+        }
+        notifyListener(changed);
+    }
+
+    void recordFailure() {
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures++;
+            probeInFlight = false;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                trips++;
+                openUntil = System.currentTimeMillis() + nextOpenMillis();
+                state = State.OPEN;
+                opened.incrementAndGet();
+                changed = state;
+            }
+        }
+        notifyListener(changed);
+    }
+
+    private long nextOpenMillis() {
+        // Exponentiell mit Obergrenze, davon eine zufällige zweite Hälfte, damit Wiederholungen nicht gleichzeitig starten
+        long backoff = baseOpenMillis << Math.min(trips - 1, 20);
+        long capped = Math.min(maxOpenMillis, backoff);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private void notifyListener(State changed) {
+        if (changed != null && listener != null) {
+            listener.accept(changed);
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    private long getRetryInMillis() {
+        return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+    }
+
+    synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("state", state);
+        metrics.put("consecutiveFailures", consecutiveFailures);
+        metrics.put("retryInSeconds", getRetryInMillis() / 1000);
+        metrics.put("opened", opened.get());
+        metrics.put("rejected", rejected.get());
+        return metrics;
+    }
+
+    /**
+     * Die Anfrage wurde gar nicht erst gestellt, weil der Schalter offen ist.
+     */
+    static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        OpenException(long retryInMillis) {
+            super("WordPress is unavailable, next attempt in " + (retryInMillis + 999) / 1000 + "s");
+        }
+    }
+}
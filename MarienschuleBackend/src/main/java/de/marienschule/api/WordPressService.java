@@ -1,83 +1,452 @@
 package de.marienschule.api;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
 
 import java.io.*;
 import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.SocketTimeoutException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 @RestController
 @EnableScheduling
 @RequestMapping("/api")
-public class WordPressService {
+public class WordPressService implements SchedulingConfigurer {
 
-    private static final String WORDPRESS_API_URL = "https://marienschule-bielefeld.de/wp-json/wp/v2/posts?_embed&per_page=20";
+    private static final String WORDPRESS_POSTS_PATH = "/wp-json/wp/v2/posts";
+    private static final int WORDPRESS_PAGE_SIZE = 100; // Maximum, das die WordPress REST API erlaubt
+    // Nur die Felder, die das Article-Modell kennt, und als einzige Einbettung das Beitragsbild;
+    // _links.wp:featuredmedia braucht WordPress, um das Bild trotz _fields einzubetten
+    private static final String ARTICLES_QUERY = "_fields=id,date,modified,title,content,excerpt,link,featured_media,"
+        + "_links.wp:featuredmedia,_embedded&_embed=wp:featuredmedia";
+    private static final String ARTICLE_IDS_QUERY = "_fields=id";
+    private static final int DEFAULT_PAGE_LIMIT = 20;
+    private static final int MAX_PAGE_LIMIT = 100;
     private static final String CACHE_DIRECTORY = "cache";
     private static final String ARTICLES_CACHE_FILE = CACHE_DIRECTORY + "/articles.json";
     private static final String ARTICLES_DIRECTORY = CACHE_DIRECTORY + "/articles";
     private static final String IMAGES_DIRECTORY = CACHE_DIRECTORY + "/images";
     private static final String SERVER_STATUS_FILE = CACHE_DIRECTORY + "/server_status.json";
-    private static final int CACHE_EXPIRATION_HOURS = 1;
+    private static final String ARTICLES_MANIFEST_FILE = CACHE_DIRECTORY + "/articles-manifest.json";
+    private static final String SNAPSHOT_FILE = CACHE_DIRECTORY + "/snapshot.bin";
+    private static final String SEARCH_INDEX_FILE = CACHE_DIRECTORY + "/search-index.json";
+    private static final String INLINE_IMAGES_FILE = CACHE_DIRECTORY + "/inline-images.json";
+    // Zeitpunkt des letzten erfolgreichen Refreshs; articles.json wird nur bei Änderungen geschrieben
+    private static final String LAST_REFRESH_FILE = CACHE_DIRECTORY + "/last-refresh.txt";
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 50;
+    // Spielraum für einen laufenden oder leicht verspäteten Refresh, bevor der Cache als abgelaufen gilt
+    private static final int REFRESH_GRACE_MINUTES = 5;
     private static final int CONNECTION_TIMEOUT = 10000; // 10 seconds
     private static final int READ_TIMEOUT = 30000; // 30 seconds
+    private static final int IDLE_CONNECTION_SECONDS = 30;
+    
+    // Maximales Alter des Caches, ab dem Anfragen auf die laufende Aktualisierung warten
+    @Value("${app.articles.max-staleness-minutes:360}")
+    private long maxStalenessMinutes;
+    
+    // Grenzen für den adaptiven Abstand zwischen zwei Aktualisierungen
+    @Value("${app.articles.refresh-min-minutes:5}")
+    private long refreshMinMinutes;
+    
+    @Value("${app.articles.refresh-max-minutes:120}")
+    private long refreshMaxMinutes;
+    
+    // Geheimnis für POST /api/articles/refresh (z.B. aus einem WordPress-Webhook), leer = abgeschaltet
+    @Value("${app.articles.refresh-token:}")
+    private String refreshToken;
+    
+    @Value("${app.wordpress.base-url:https://marienschule-bielefeld.de}")
+    private String wordpressBaseUrl;
+    
+    // Anzahl der Archivseiten, die gleichzeitig von WordPress geladen werden
+    @Value("${app.wordpress.page-fetch-parallelism:4}")
+    private int pageFetchParallelism;
+    
+    // Wie oft ein Abgleich der IDs gelöschte Artikel aufspürt
+    @Value("${app.wordpress.reconcile-interval-hours:24}")
+    private long reconcileIntervalHours;
+    
+    // Größe des Keep-Alive-Pools pro Host für Posts und Bilder
+    @Value("${app.wordpress.max-connections-per-host:8}")
+    private int maxConnectionsPerHost;
+    
+    // Schutzschalter: Fehler in Folge bis zum Öffnen, erste und längste Wartezeit bis zur Probeanfrage
+    @Value("${app.wordpress.breaker-failure-threshold:1}")
+    private int breakerFailureThreshold;
+    
+    @Value("${app.wordpress.breaker-open-seconds:30}")
+    private long breakerOpenSeconds;
+    
+    @Value("${app.wordpress.breaker-max-open-minutes:30}")
+    private long breakerMaxOpenMinutes;
+    
+    // Bild-Downloads laufen getrennt von der Aktualisierung in einem begrenzten Worker-Pool
+    @Value("${app.images.download-workers:4}")
+    private int imageDownloadWorkers;
+    
+    @Value("${app.images.queue-capacity:500}")
+    private int imageQueueCapacity;
+    
+    @Value("${app.images.download-timeout-seconds:15}")
+    private int imageDownloadTimeoutSeconds;
+    
+    @Value("${app.images.hot-cache-size-mb:32}")
+    private int hotImageCacheSizeMb;
+    
+    @Value("${app.images.hot-cache-max-entry-kb:2048}")
+    private int hotImageCacheMaxEntryKb;
+    
+    @Value("${app.images.hot-cache-warm-articles:10}")
+    private int hotImageCacheWarmArticles;
+    
+    @Value("${app.images.download-retries:2}")
+    private int imageDownloadRetries;
+    
+    // Abstand der Heartbeats im Ereignis-Stream, hält Proxys und mobile Verbindungen offen
+    @Value("${app.articles.stream-heartbeat-seconds:25}")
+    private int streamHeartbeatSeconds;
     
     private final ObjectMapper objectMapper;
+    // Binäres JSON für die Snapshot-Datei
+    private final ObjectMapper smileMapper;
+    private final ArticleStore articleStore;
+    // Hash der zuletzt geschriebenen articles.json, um unveränderte Listen nicht neu zu schreiben
+    private String articlesListHash;
     private final Map<Integer, Article> articlesCache = new ConcurrentHashMap<>();
-    private LocalDateTime lastCacheUpdate = LocalDateTime.now().minusDays(1);
-    private ServerStatus serverStatus = new ServerStatus();
+    // Gzip-Varianten der Snapshot-Antworten samt Zählern für /metrics
+    private final ResponseCompression responseCompression = new ResponseCompression();
+    // Unveränderlicher, vorsortierter und vorserialisierter Stand, den die Endpunkte ausliefern
+    private final AtomicReference<ArticleSnapshot> snapshot = new AtomicReference<>(ArticleSnapshot.EMPTY);
+    private volatile LocalDateTime lastCacheUpdate = LocalDateTime.now().minusDays(1);
+    // Neuester WordPress-"modified"-Zeitstempel im Cache, Basis für modified_after
+    private volatile String newestModified;
+    private LocalDateTime lastReconciliation = LocalDateTime.MIN;
+    // Zeitpunkt des letzten Refreshs mit Änderungen, verkürzt den nächsten Abstand
+    private volatile LocalDateTime lastArticleChange;
+    private RefreshScheduler refreshScheduler;
+    private volatile LocalDateTime nextScheduledRefresh;
+    private volatile RefreshScheduler.Plan lastRefreshPlan;
+    private final AtomicLong onDemandRefreshes = new AtomicLong();
+    private final ServerStatusTracker serverStatus;
+    
+    // Single-flight refresh: at most one refresh runs at a time, every caller shares its future
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "wordpress-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicReference<CompletableFuture<Void>> inFlightRefresh = new AtomicReference<>();
+    private ExecutorService pageFetchExecutor;
+    
+    // Gemeinsamer HTTP-Client mit Verbindungspool, Keep-Alive und gzip für alle WordPress-Anfragen
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private UpstreamCircuitBreaker upstreamBreaker;
+    // ETag/Last-Modified der letzten Antwort je URL für bedingte Anfragen
+    private final Map<String, UpstreamValidators> upstreamValidators = new ConcurrentHashMap<>();
+    private final AtomicLong conditionalRequests = new AtomicLong();
+    private final AtomicLong notModifiedResponses = new AtomicLong();
+    
+    private ImageDownloadPipeline imagePipeline;
+    private final ImageStore imageStore = new ImageStore(Paths.get(IMAGES_DIRECTORY));
+    private final ArticleSearchIndex searchIndex = new ArticleSearchIndex();
+    private HotImageCache hotImageCache;
+    private InlineImageProxy inlineImages;
+    // Blockmodell je Artikel, wird nur neu geparst, wenn sich der Inhalt geändert hat
+    private final Map<Integer, ParsedContent> contentBlocks = new ConcurrentHashMap<>();
+    private final AtomicLong contentBlocksParsed = new AtomicLong();
+    // Hash der Rohtexte je Artikel beim letzten reformatArticle in diesem Lauf
+    private final Map<Integer, Long> sourceHashes = new ConcurrentHashMap<>();
+    private final AtomicLong contentProcessed = new AtomicLong();
+    private final AtomicLong contentSkipped = new AtomicLong();
+    private volatile long lastRefreshProcessed;
+    private volatile long lastRefreshSkipped;
+    private volatile ArticleEventStream articleEvents;
+    // Fasst mehrere eintreffende Bilder zu einer einzigen Neuveröffentlichung des Snapshots zusammen
+    private final AtomicBoolean snapshotRepublishPending = new AtomicBoolean();
     
     public WordPressService() {
         objectMapper = new ObjectMapper();
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        // Wie spring.jackson.serialization.WRITE_DATES_AS_TIMESTAMPS, da wir die Antworten selbst serialisieren
+        objectMapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
         objectMapper.registerModule(new JavaTimeModule());
+        smileMapper = new ObjectMapper(new SmileFactory());
+        smileMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        smileMapper.registerModule(new JavaTimeModule());
+        articleStore = new ArticleStore(Paths.get(ARTICLES_DIRECTORY), Paths.get(ARTICLES_MANIFEST_FILE), objectMapper);
+        serverStatus = new ServerStatusTracker(Paths.get(SERVER_STATUS_FILE), objectMapper);
         
         // Create cache directories if they don't exist
         try {
             Files.createDirectories(Paths.get(CACHE_DIRECTORY));
             Files.createDirectories(Paths.get(ARTICLES_DIRECTORY));
             Files.createDirectories(Paths.get(IMAGES_DIRECTORY));
-            loadCachedArticles();
-            loadServerStatus();
+            if (!restoreFromSnapshotFile()) {
+                boolean cacheComplete = loadCachedArticles();
+                loadSearchIndex();
+                // Fehlen Artikel, muss der nächste Refresh alles holen statt nur die Änderungen
+                newestModified = cacheComplete && !predatesFeaturedMedia()
+                    ? findNewestModified(articlesCache.values(), null) : null;
+                publishSnapshot();
+                // Damit der nächste Start die Snapshot-Datei nutzen kann
+                refreshExecutor.execute(this::saveSnapshotFile);
+            }
+            serverStatus.load();
         } catch (IOException e) {
             System.err.println("Error creating cache directories: " + e.getMessage());
-            serverStatus.setStatus(ServerStatus.Status.ERROR);
-            serverStatus.setMessage("Fehler beim Initialisieren des Caches: " + e.getMessage());
-            saveServerStatus();
+            serverStatus.publish(ServerStatus.Status.ERROR,
+                "Fehler beim Initialisieren des Caches: " + e.getMessage(), LocalDateTime.now());
+        }
+    }
+    
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        pageFetchExecutor = Executors.newFixedThreadPool(Math.max(1, pageFetchParallelism), runnable -> {
+            Thread thread = new Thread(runnable, "wordpress-page-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        connectionManager.setMaxTotal(maxConnectionsPerHost * 2);
+        
+        // Content compression is enabled by default: Accept-Encoding: gzip,deflate and transparent decoding
+        httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(CONNECTION_TIMEOUT)
+                .setConnectionRequestTimeout(CONNECTION_TIMEOUT)
+                .setSocketTimeout(READ_TIMEOUT)
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(IDLE_CONNECTION_SECONDS, TimeUnit.SECONDS)
+            .build();
+        
+        // Sobald der Schalter öffnet, gilt WordPress als offline, ohne auf den nächsten Refresh zu warten
+        upstreamBreaker = new UpstreamCircuitBreaker(breakerFailureThreshold, breakerOpenSeconds * 1000,
+            breakerMaxOpenMinutes * 60 * 1000, state -> {
+                System.out.println("WordPress circuit breaker is now " + state);
+                if (state == UpstreamCircuitBreaker.State.OPEN) {
+                    publishRefreshFailure(null);
+                }
+            });
+        
+        imagePipeline = new ImageDownloadPipeline(httpClient, Math.max(1, imageDownloadWorkers),
+            Math.max(1, imageQueueCapacity), imageDownloadTimeoutSeconds * 1000, imageDownloadRetries);
+        
+        hotImageCache = new HotImageCache(hotImageCacheSizeMb * 1024L * 1024L, hotImageCacheMaxEntryKb * 1024L);
+        imageStore.setHotCache(hotImageCache);
+        warmHotImages();
+        
+        inlineImages = new InlineImageProxy(wordpressBaseUrl, Paths.get(IMAGES_DIRECTORY), Paths.get(INLINE_IMAGES_FILE),
+            objectMapper, imagePipeline, imageStore);
+        inlineImages.load();
+        // Nach dem Laden des Caches, der ebenfalls auf dem Refresh-Thread abgeschlossen wird
+        refreshExecutor.execute(this::proxyCachedInlineImages);
+        
+        articleEvents = new ArticleEventStream(objectMapper, streamHeartbeatSeconds);
+        refreshScheduler = new RefreshScheduler(Duration.ofMinutes(Math.max(1, refreshMinMinutes)),
+            Duration.ofMinutes(Math.max(1, refreshMaxMinutes)));
+    }
+    
+    /**
+     * Der Refresh plant sich nach jedem Lauf selbst neu ein; der erste Lauf startet sofort.
+     */
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addTriggerTask(this::scheduledCacheRefresh, context -> {
+            Duration delay = Duration.ZERO;
+            if (context.lastCompletionTime() != null) {
+                RefreshScheduler.Plan plan = refreshScheduler.plan(
+                    LocalDateTime.now(), getRecentPostTimes(), lastArticleChange);
+                lastRefreshPlan = plan;
+                delay = plan.getDelay();
+                System.out.println("Next article refresh in " + delay.toMinutes() + " min (" + plan.getReason() + ")");
+            }
+            nextScheduledRefresh = LocalDateTime.now().plus(delay);
+            return Date.from(nextScheduledRefresh.atZone(ZoneId.systemDefault()).toInstant());
+        });
+    }
+    
+    private List<LocalDateTime> getRecentPostTimes() {
+        // Der Snapshot ist bereits nach Datum sortiert, die neuesten zuerst
+        List<LocalDateTime> postTimes = new ArrayList<>();
+        for (Article article : snapshot.get().getArticles()) {
+            if (article.getDate() != null) {
+                try {
+                    postTimes.add(LocalDateTime.parse(article.getDate()));
+                } catch (DateTimeParseException e) {
+                    // Artikel ohne verwertbares Datum zählen nicht zum Muster
+                }
+            }
+        }
+        return postTimes;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+        pageFetchExecutor.shutdownNow();
+        imagePipeline.shutdown();
+        serverStatus.shutdown();
+        articleEvents.shutdown();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            System.err.println("Error closing WordPress HTTP client: " + e.getMessage());
         }
     }
     
     @GetMapping("/status")
-    public ResponseEntity<ServerStatus> getServerStatus() {
-        // Update the last update time
-        serverStatus.setLastUpdate(LocalDateTime.now());
-        return ResponseEntity.ok(serverStatus);
+    public ResponseEntity<byte[]> getServerStatus() throws JsonProcessingException {
+        // lastUpdate bleibt der Zeitpunkt der letzten Statusänderung; nur die Snapshot-Angaben sind live
+        ServerStatus status = serverStatus.current().withSnapshotInfo(getSnapshotAge().getSeconds(),
+            isCacheExpired(), inFlightRefresh.get() != null, serverStatus.history());
+        
+        // snapshotAgeSeconds ändert sich jede Sekunde: ein ETag oder Last-Modified würde nie
+        // passen, daher keine Validatoren und der Client fragt jedes Mal neu
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .cacheControl(CacheControl.noCache())
+            .body(objectMapper.writeValueAsBytes(status));
+    }
+    
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("wordpressHttp", getHttpClientMetrics());
+        metrics.put("wordpressBreaker", upstreamBreaker.getMetrics());
+        metrics.put("imageDownloads", imagePipeline.getMetrics());
+        metrics.put("hotImageCache", hotImageCache.getMetrics());
+        metrics.put("inlineImages", inlineImages.getMetrics());
+        metrics.put("contentBlocks", getContentBlocksMetrics());
+        metrics.put("contentProcessing", getContentProcessingMetrics());
+        metrics.put("articleStore", articleStore.getMetrics());
+        metrics.put("responseCompression", responseCompression.getMetrics());
+        metrics.put("serverStatus", serverStatus.getMetrics());
+        metrics.put("articleEvents", articleEvents.getMetrics());
+        metrics.put("refreshSchedule", getRefreshScheduleMetrics());
+        return ResponseEntity.ok(metrics);
+    }
+    
+    private Map<String, Object> getRefreshScheduleMetrics() {
+        RefreshScheduler.Plan plan = lastRefreshPlan;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("nextRefresh", nextScheduledRefresh);
+        metrics.put("delayMinutes", plan == null ? null : plan.getDelay().toMinutes());
+        metrics.put("reason", plan == null ? null : plan.getReason());
+        metrics.put("lastArticleChange", lastArticleChange);
+        metrics.put("onDemandRefreshes", onDemandRefreshes.get());
+        return metrics;
+    }
+    
+    private Map<String, Object> getContentBlocksMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("cachedArticles", contentBlocks.size());
+        metrics.put("parsed", contentBlocksParsed.get());
+        return metrics;
+    }
+    
+    private Map<String, Object> getContentProcessingMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("processed", contentProcessed.get());
+        metrics.put("skipped", contentSkipped.get());
+        metrics.put("lastRefreshProcessed", lastRefreshProcessed);
+        metrics.put("lastRefreshSkipped", lastRefreshSkipped);
+        return metrics;
     }
     
     @GetMapping("/articles")
-    public ResponseEntity<ApiResponse<List<Article>>> getArticles() {
+    public ResponseEntity<byte[]> getArticles(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String view,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            // Check if cache needs to be refreshed
+            // Standard ist der vollständige Artikel (die iOS-App liest content aus der Liste),
+            // die Kurzform ohne Inhalt gibt es mit view=summary
+            Set<String> selectedFields;
+            try {
+                selectedFields = ArticleProjection.parseFields(fields, view);
+            } catch (IllegalArgumentException e) {
+                return jsonResponse(HttpStatus.BAD_REQUEST, new ApiResponse<>(false, e.getMessage(), null));
+            }
+            
+            // Stale-while-revalidate: serve the current cache, refresh in the background
             if (isCacheExpired()) {
                 try {
-                    refreshCache();
+                    revalidateCache();
                 } catch (Exception e) {
                     // If refresh fails but we have cached articles, continue with cached data
-                    if (articlesCache.isEmpty()) {
+                    if (snapshot.get().isEmpty()) {
                         throw e; // Re-throw if we don't have cached data
                     }
                     // Otherwise, log the error but continue with cached data
@@ -85,37 +454,105 @@ public class WordPressService {
                 }
             }
             
-            if (articlesCache.isEmpty()) {
-                return ResponseEntity.ok(new ApiResponse<>(
+            ArticleSnapshot current = snapshot.get();
+            if (current.isEmpty()) {
+                return jsonResponse(HttpStatus.OK, new ApiResponse<>(
                     false, 
                     "Keine Artikel verfügbar. Die Schul-Website könnte offline sein.",
                     null
                 ));
             }
             
-            List<Article> articles = new ArrayList<>(articlesCache.values());
-            articles.sort((a1, a2) -> a2.getDate().compareTo(a1.getDate())); // Sort by date, newest first
+            if (cursor == null && limit == null) {
+                // Already sorted and encoded when the snapshot was built
+                return cachedResponse(selectedFields == ArticleProjection.FULL_FIELDS
+                    ? current.getArticlesResponse()
+                    : current.getProjection(selectedFields).getListResponse(), acceptEncoding);
+            }
+            
+            int pageLimit = limit == null ? DEFAULT_PAGE_LIMIT : Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+            int start;
+            try {
+                start = current.indexAfter(cursor);
+            } catch (IllegalArgumentException e) {
+                return jsonResponse(HttpStatus.BAD_REQUEST, new ApiResponse<>(false, "Ungültiger Cursor", null));
+            }
             
-            return ResponseEntity.ok(new ApiResponse<>(true, "Artikel erfolgreich geladen", articles));
+            // Die Seite wird aus den fertig serialisierten Artikeln der Projektion zusammengesetzt;
+            // sie gilt nur für diese Anfrage und wird daher nicht komprimiert
+            List<Article> all = current.getArticles();
+            int end = Math.min(start + pageLimit, all.size());
+            String nextCursor = end < all.size() ? ArticleSnapshot.encodeCursor(all.get(end - 1)) : null;
+            
+            return cachedResponse(new CachedResponse(
+                current.getProjection(selectedFields).page(start, end, nextCursor, objectMapper)), acceptEncoding);
         } catch (Exception e) {
             System.err.println("Error retrieving articles: " + e.getMessage());
             e.printStackTrace();
             
             // Return a proper error response
-            return ResponseEntity
-                .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ApiResponse<>(
-                    false, 
-                    "Fehler beim Laden der Artikel: " + e.getMessage(),
-                    null
-                ));
+            return jsonResponse(HttpStatus.INTERNAL_SERVER_ERROR, new ApiResponse<>(
+                false, 
+                "Fehler beim Laden der Artikel: " + e.getMessage(),
+                null
+            ));
+        }
+    }
+    
+    /**
+     * Server-Sent Events: ein {@code articles}-Ereignis mit den IDs neuer, geänderter und
+     * gelöschter Artikel, sobald ein neuer Snapshot veröffentlicht wird.
+     */
+    @GetMapping(value = "/articles/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamArticles(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return articleEvents.subscribe(lastEventId);
+    }
+    
+    @GetMapping("/articles/search")
+    public ResponseEntity<byte[]> searchArticles(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            int searchLimit = limit == null ? DEFAULT_SEARCH_LIMIT : Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT));
+            ArticleSnapshot current = snapshot.get();
+            
+            List<SearchResult> results = new ArrayList<>();
+            for (ArticleSearchIndex.SearchHit hit : searchIndex.search(q, searchLimit)) {
+                // Titel, Link und Bild kommen aus dem veröffentlichten Snapshot
+                Article article = current.getArticle(hit.getId());
+                if (article != null) {
+                    results.add(new SearchResult(article, hit.getScore(), hit.getSnippet()));
+                }
+            }
+            
+            return jsonResponse(HttpStatus.OK, new ApiResponse<>(true, results.size() + " Treffer", results));
+        } catch (Exception e) {
+            System.err.println("Error searching articles: " + e.getMessage());
+            return jsonResponse(HttpStatus.INTERNAL_SERVER_ERROR, new ApiResponse<>(
+                false, "Fehler bei der Suche: " + e.getMessage(), null));
         }
     }
     
     @GetMapping("/articles/{id}")
-    public ResponseEntity<ApiResponse<Article>> getArticleById(@PathVariable int id) {
+    public ResponseEntity<byte[]> getArticleById(@PathVariable int id,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         try {
-            // Versuche zuerst, den Artikel aus dem Cache zu holen
+            // format=blocks liefert statt des HTML-Inhalts das vorab geparste Blockmodell
+            boolean blocks = "blocks".equals(format);
+            if (!blocks && format != null && !format.equals("html")) {
+                return jsonResponse(HttpStatus.BAD_REQUEST, new ApiResponse<>(false, "Unbekanntes Format: " + format, null));
+            }
+            
+            // Versuche zuerst, die fertig serialisierte Antwort aus dem Snapshot zu holen
+            CachedResponse articleResponse = blocks
+                ? snapshot.get().getBlocksResponse(id, this::getContentBlocks)
+                : snapshot.get().getArticleResponse(id);
+            if (articleResponse != null) {
+                return cachedResponse(articleResponse, acceptEncoding);
+            }
+            
             Article article = articlesCache.get(id);
             
             // Wenn der Artikel nicht im Cache ist, versuche ihn direkt aus der Datei zu laden
@@ -123,8 +560,7 @@ public class WordPressService {
                 Path articleFile = Paths.get(ARTICLES_DIRECTORY, "article_" + id + ".json");
                 if (Files.exists(articleFile)) {
                     try {
-                        String articleJson = new String(Files.readAllBytes(articleFile));
-                        article = objectMapper.readValue(articleJson, Article.class);
+                        article = objectMapper.readValue(Files.readAllBytes(articleFile), Article.class);
                         // Füge den Artikel zum Cache hinzu
                         articlesCache.put(id, article);
                     } catch (Exception e) {
@@ -136,335 +572,1099 @@ public class WordPressService {
             // Wenn der Artikel immer noch nicht gefunden wurde und der Cache abgelaufen ist, aktualisiere den Cache
             if (article == null && isCacheExpired()) {
                 try {
-                    refreshCache();
-                    // Versuche erneut, den Artikel aus dem Cache zu holen
-                    article = articlesCache.get(id);
+                    revalidateCache();
+                    // Versuche erneut, den Artikel aus dem Snapshot zu holen
+                    article = snapshot.get().getArticle(id);
                 } catch (Exception e) {
                     System.err.println("Warning: Cache refresh failed: " + e.getMessage());
                 }
             }
             
             if (article != null) {
-                return ResponseEntity.ok(new ApiResponse<>(true, "Artikel erfolgreich geladen", article));
+                return jsonResponse(HttpStatus.OK, new ApiResponse<>(true, "Artikel erfolgreich geladen",
+                    blocks ? ArticleSnapshot.blocksView(article, getContentBlocks(article), objectMapper) : article));
             } else {
-                return ResponseEntity
-                    .status(HttpStatus.NOT_FOUND)
-                    .body(new ApiResponse<>(false, "Artikel nicht gefunden", null));
+                return jsonResponse(HttpStatus.NOT_FOUND, new ApiResponse<>(false, "Artikel nicht gefunden", null));
             }
         } catch (Exception e) {
             System.err.println("Error retrieving article: " + e.getMessage());
             e.printStackTrace();
             
-            return ResponseEntity
-                .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ApiResponse<>(
-                    false, 
-                    "Fehler beim Laden des Artikels: " + e.getMessage(),
-                    null
-                ));
+            return jsonResponse(HttpStatus.INTERNAL_SERVER_ERROR, new ApiResponse<>(
+                false, 
+                "Fehler beim Laden des Artikels: " + e.getMessage(),
+                null
+            ));
+        }
+    }
+    
+    /**
+     * Liefert eine vorserialisierte Antwort mit ETag, Last-Modified und Cache-Control aus.
+     * Bedingte Anfragen (If-None-Match / If-Modified-Since) beantwortet Spring
+     * anhand dieser Header selbst mit 304 ohne Body. Akzeptiert der Client Gzip und gibt
+     * es eine vorab komprimierte Variante, wird diese mit eigenem ETag ausgeliefert.
+     */
+    private ResponseEntity<byte[]> cachedResponse(CachedResponse response, String acceptEncoding) {
+        boolean gzip = response.getGzipBody() != null && ResponseCompression.acceptsGzip(acceptEncoding);
+        responseCompression.recordServed(response, gzip);
+        
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING)
+            .lastModified(lastCacheUpdate.atZone(ZoneId.systemDefault()))
+            .cacheControl(CacheControl.maxAge(getSecondsUntilNextRefresh(), TimeUnit.SECONDS));
+        if (gzip) {
+            return builder
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .eTag(response.getEtag() + "-gz")
+                .body(response.getGzipBody());
         }
+        return builder.eTag(response.getEtag()).body(response.getBody());
     }
     
-    @GetMapping(value = "/images/{filename}", produces = MediaType.IMAGE_JPEG_VALUE)
-    public ResponseEntity<byte[]> getImage(@PathVariable String filename) {
+    private ResponseEntity<byte[]> jsonResponse(HttpStatus status, Object body) {
         try {
-            Path imagePath = Paths.get(IMAGES_DIRECTORY, filename);
-            if (Files.exists(imagePath)) {
-                byte[] imageData = Files.readAllBytes(imagePath);
-                return ResponseEntity.ok(imageData);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (Exception e) {
+            return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(objectMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            System.err.println("Error serializing response: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    @GetMapping("/images/{filename}")
+    public void getImage(@PathVariable String filename, @RequestParam(required = false) Integer w,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageStore.ImageFile image;
+        try {
+            // Mit w= die kleinste Variante, die mindestens so breit ist, sonst das Original
+            image = w == null ? imageStore.lookup(filename) : imageStore.lookup(filename, w);
+        } catch (IOException e) {
             System.err.println("Error retrieving image: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+        
+        if (image == null) {
+            // Bild aus dem Artikelinhalt, das noch geladen wird: solange das Original, aber nicht cachen
+            String origin = filename.startsWith(InlineImageProxy.FILENAME_PREFIX) ? inlineImages.originUrl(filename) : null;
+            if (origin != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                response.sendRedirect(origin);
+                return;
+            }
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        imageStore.serve(image, request, response);
+    }
+    
+    /**
+     * Stößt sofort eine Aktualisierung an, z.B. aus einem Webhook beim Veröffentlichen in WordPress.
+     * Das Token kommt im Header {@code X-Refresh-Token} oder, für Webhooks ohne eigene Header,
+     * als Parameter {@code token}. Läuft bereits eine Aktualisierung, wird keine weitere gestartet.
+     */
+    @PostMapping("/articles/refresh")
+    public ResponseEntity<byte[]> requestRefresh(
+            @RequestHeader(value = "X-Refresh-Token", required = false) String headerToken,
+            @RequestParam(value = "token", required = false) String paramToken) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return jsonResponse(HttpStatus.FORBIDDEN, new ApiResponse<>(false, "Manuelle Aktualisierung ist deaktiviert", null));
+        }
+        String token = headerToken != null ? headerToken : paramToken;
+        if (token == null || !MessageDigest.isEqual(
+                token.getBytes(StandardCharsets.UTF_8), refreshToken.getBytes(StandardCharsets.UTF_8))) {
+            return jsonResponse(HttpStatus.UNAUTHORIZED, new ApiResponse<>(false, "Ungültiges Token", null));
         }
+        
+        boolean alreadyRunning = inFlightRefresh.get() != null;
+        CompletableFuture<Void> refresh = triggerRefresh();
+        if (!alreadyRunning) {
+            onDemandRefreshes.incrementAndGet();
+            refresh.whenComplete((result, e) -> {
+                if (e == null) {
+                    publishOnlineStatus();
+                }
+            });
+        }
+        return jsonResponse(HttpStatus.ACCEPTED, new ApiResponse<>(true,
+            alreadyRunning ? "Aktualisierung läuft bereits" : "Aktualisierung gestartet", null));
     }
     
-    @Scheduled(fixedRate = 3600000) // Refresh cache every hour
     public void scheduledCacheRefresh() {
         try {
-            refreshCache();
-            serverStatus.setStatus(ServerStatus.Status.ONLINE);
-            serverStatus.setMessage("Server online, letzte Aktualisierung: " + 
-                DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").format(lastCacheUpdate));
-            serverStatus.setLastUpdate(lastCacheUpdate);
-            saveServerStatus();
+            awaitRefresh(triggerRefresh());
+            publishOnlineStatus();
         } catch (Exception e) {
             System.err.println("Scheduled cache refresh failed: " + e.getMessage());
-            e.printStackTrace();
+            if (!(e instanceof UpstreamCircuitBreaker.OpenException)) {
+                e.printStackTrace();
+            }
             
             // Update server status to indicate the WordPress site is offline
-            if (e instanceof SocketTimeoutException || e.getMessage().contains("Connection")) {
-                serverStatus.setStatus(ServerStatus.Status.WORDPRESS_OFFLINE);
-                serverStatus.setMessage("Die Schul-Website ist nicht erreichbar. Verwende zwischengespeicherte Daten.");
-            } else {
-                serverStatus.setStatus(ServerStatus.Status.ERROR);
-                serverStatus.setMessage("Fehler beim Aktualisieren der Daten: " + e.getMessage());
-            }
-            saveServerStatus();
+            publishRefreshFailure(e);
         }
     }
     
+    /**
+     * Abgelaufen ist der Cache erst, wenn der geplante Refresh überfällig ist oder der letzte
+     * erfolgreiche länger als der größte Abstand zurückliegt (z.B. weil Refreshs scheitern).
+     * So verlängert die adaptive Planung nachts und in den Ferien auch die Gültigkeit.
+     */
     private boolean isCacheExpired() {
-        return LocalDateTime.now().isAfter(lastCacheUpdate.plusHours(CACHE_EXPIRATION_HOURS));
+        LocalDateTime expiry = getLatestRefresh();
+        if (nextScheduledRefresh != null && nextScheduledRefresh.isBefore(expiry)) {
+            expiry = nextScheduledRefresh;
+        }
+        return LocalDateTime.now().isAfter(expiry.plusMinutes(REFRESH_GRACE_MINUTES));
+    }
+    
+    private LocalDateTime getLatestRefresh() {
+        return lastCacheUpdate.plusMinutes(Math.max(1, refreshMaxMinutes));
+    }
+    
+    private Duration getSnapshotAge() {
+        return Duration.between(lastCacheUpdate, LocalDateTime.now());
+    }
+    
+    private long getSecondsUntilNextRefresh() {
+        // Vor dem nächsten geplanten Refresh kann sich die Liste nur über einen manuellen Anstoß ändern
+        LocalDateTime nextRefresh = nextScheduledRefresh != null
+            ? nextScheduledRefresh : getLatestRefresh();
+        return Math.max(0, Duration.between(LocalDateTime.now(), nextRefresh).getSeconds());
+    }
+    
+    /**
+     * Stößt bei abgelaufenem Cache eine Aktualisierung im Hintergrund an.
+     * Die anfragende Verbindung wartet nur, wenn noch gar keine Artikel vorliegen
+     * oder der Cache älter als die konfigurierte maximale Veraltung ist. Bei offenem
+     * Schutzschalter wird gar nicht erst aktualisiert.
+     */
+    private void revalidateCache() throws Exception {
+        if (!upstreamBreaker.allowsRequests()) {
+            // WordPress ist nicht erreichbar: sofort aus dem Snapshot antworten, nicht erst scheitern
+            return;
+        }
+        CompletableFuture<Void> refresh = triggerRefresh();
+        if (snapshot.get().isEmpty() || getSnapshotAge().toMinutes() >= maxStalenessMinutes) {
+            awaitRefresh(refresh);
+        }
+    }
+    
+    /**
+     * Startet eine Aktualisierung auf dem Refresh-Thread oder liefert die bereits laufende zurück.
+     */
+    private CompletableFuture<Void> triggerRefresh() {
+        while (true) {
+            CompletableFuture<Void> current = inFlightRefresh.get();
+            if (current != null) {
+                return current;
+            }
+            
+            CompletableFuture<Void> refresh = new CompletableFuture<>();
+            if (inFlightRefresh.compareAndSet(null, refresh)) {
+                refreshExecutor.execute(() -> {
+                    Throwable failure = null;
+                    try {
+                        refreshCache();
+                    } catch (Throwable e) {
+                        failure = e;
+                    }
+                    // Clear before completing so that waiters can immediately start a new refresh
+                    inFlightRefresh.compareAndSet(refresh, null);
+                    if (failure != null) {
+                        refresh.completeExceptionally(failure);
+                    } else {
+                        refresh.complete(null);
+                    }
+                });
+                return refresh;
+            }
+        }
+    }
+    
+    private void awaitRefresh(CompletableFuture<Void> refresh) throws Exception {
+        try {
+            refresh.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
     }
     
     private synchronized void refreshCache() throws IOException {
         System.out.println("Refreshing articles cache...");
+        long processedBefore = contentProcessed.get();
+        long skippedBefore = contentSkipped.get();
         
         try {
-            // Fetch articles from WordPress API
-            String jsonResponse = fetchDataFromWordPress(WORDPRESS_API_URL);
-            Article[] articles = objectMapper.readValue(jsonResponse, Article[].class);
-            
-            if (articles.length == 0) {
-                System.out.println("Warning: WordPress API returned 0 articles");
-                return; // Don't clear the cache if we got 0 articles
-            }
+            List<Integer> removedIds = Collections.emptyList();
+            // Artikel werden einzeln eingelesen und direkt übernommen, es entsteht keine Gesamtliste
+            Set<Integer> fetchedIds = ConcurrentHashMap.newKeySet();
+            AtomicReference<String> newestFetched = new AtomicReference<>(newestModified);
+            Consumer<Article> ingest = article -> {
+                ingestArticle(article);
+                fetchedIds.add(article.getId());
+                newestFetched.accumulateAndGet(article.getModified(), WordPressService::newerModified);
+            };
             
-            // Clear existing cache
-            articlesCache.clear();
-            
-            // Process and cache each article
-            for (Article article : articles) {
-                // Reformatiere den Artikel
-                reformatArticle(article);
+            // Bleibt false, wenn das Archiv unvollständig geladen wurde: dann beim nächsten Mal wieder alles holen
+            boolean advanceNewestModified = true;
+            if (newestModified == null || articlesCache.isEmpty()) {
+                // Fetch the whole archive from the WordPress API
+                Set<Integer> archiveIds = ConcurrentHashMap.newKeySet();
+                Consumer<Article> ingestArchive = ingest.andThen(article -> archiveIds.add(article.getId()));
+                FetchResult archive = fetchAllArticles(ARTICLES_QUERY, ingestArchive, false);
+                if (!archive.isComplete(archiveIds.size())) {
+                    // Wird während des parallelen Blätterns ein Artikel gelöscht, rutschen andere über die Seitengrenze
+                    System.out.println("Archive changed while paging (" + archiveIds.size() + " of "
+                        + archive.getTotal() + " articles), fetching again");
+                    archiveIds.clear();
+                    archive = fetchAllArticles(ARTICLES_QUERY, ingestArchive, false);
+                }
+                
+                if (fetchedIds.isEmpty()) {
+                    System.out.println("Warning: WordPress API returned 0 articles");
+                    return; // Don't clear the cache if we got 0 articles
+                }
                 
-                // Cache the article
-                articlesCache.put(article.getId(), article);
+                if (archive.isComplete(archiveIds.size())) {
+                    // Das Archiv ist vollständig, also entfallen nur Artikel, die es in WordPress nicht mehr gibt
+                    removedIds = removeArticlesNotIn(archiveIds);
+                    lastReconciliation = LocalDateTime.now();
+                } else {
+                    System.out.println("Warning: archive still incomplete (" + archiveIds.size() + " of "
+                        + archive.getTotal() + " articles), keeping all cached articles");
+                    advanceNewestModified = false;
+                }
+            } else {
+                // Nur Artikel laden, die seit dem letzten bekannten Stand geändert wurden
+                fetchChangedArticles(newestModified, ingest);
                 
-                // Download and cache featured image if available
-                if (article.getFeaturedMediaUrl() != null) {
-                    String imageFilename = "image_" + article.getId() + ".jpg";
-                    article.setCachedImagePath("/api/images/" + imageFilename);
-                    
-                    // Download image if it doesn't exist
-                    Path imagePath = Paths.get(IMAGES_DIRECTORY, imageFilename);
-                    if (!Files.exists(imagePath)) {
-                        downloadImage(article.getFeaturedMediaUrl(), imagePath);
+                // Gelöschte Artikel tauchen in den Änderungen nicht auf, daher gelegentlich die IDs abgleichen
+                if (LocalDateTime.now().isAfter(lastReconciliation.plusHours(reconcileIntervalHours))) {
+                    Set<Integer> existingIds = ConcurrentHashMap.newKeySet();
+                    FetchResult idsResult = fetchAllArticles(
+                        ARTICLE_IDS_QUERY, article -> existingIds.add(article.getId()), true);
+                    if (idsResult.getNotModifiedPages() > 0 && idsResult.getNotModifiedPages() < idsResult.getPages()) {
+                        // Nur teilweise unverändert: ohne vollständige ID-Liste darf nichts gelöscht werden
+                        existingIds.clear();
+                        idsResult = fetchAllArticles(ARTICLE_IDS_QUERY, article -> existingIds.add(article.getId()), false);
+                    }
+                    // Sind alle Seiten unverändert (304), bleibt die Liste leer und es wird nichts entfernt
+                    if (existingIds.isEmpty()) {
+                        lastReconciliation = LocalDateTime.now();
+                    } else if (idsResult.isComplete(existingIds.size())) {
+                        removedIds = removeArticlesNotIn(existingIds);
+                        lastReconciliation = LocalDateTime.now();
+                    } else {
+                        // Fehlende IDs würden als gelöscht gelten; beim nächsten Refresh erneut abgleichen
+                        System.out.println("Warning: ID list incomplete (" + existingIds.size() + " of "
+                            + idsResult.getTotal() + "), skipping reconciliation");
                     }
                 }
-                
-                // Speichere jeden Artikel in einer eigenen Datei
-                saveArticleToFile(article);
             }
             
-            // Speichere auch die Artikelliste für Kompatibilität
-            saveArticlesList();
+            if (!fetchedIds.isEmpty() || !removedIds.isEmpty()) {
+                lastArticleChange = LocalDateTime.now();
+                
+                // Neuen Stand für die Endpunkte veröffentlichen
+                publishSnapshot();
+                
+                // Speichere auch die Artikelliste für Kompatibilität
+                saveArticlesList();
+                saveSearchIndex();
+                inlineImages.save();
+                
+                // Alle geänderten Artikeldateien mit einem gemeinsamen fsync festschreiben
+                articleStore.commit();
+                saveSnapshotFile();
+                
+                // Die Bilder der neuesten Artikel werden morgens am häufigsten abgerufen
+                warmHotImages();
+            }
+            // Auch ohne Änderungen: was beim letzten Mal nicht in die Warteschlange passte oder scheiterte.
+            // Beitragsbilder zuerst, sie braucht der Feed dringender als die Bilder im Inhalt
+            retryMissingFeaturedImages();
+            inlineImages.prefetchMissing();
+            if (advanceNewestModified && !Objects.equals(newestModified, newestFetched.get())) {
+                // Abfragen mit älteren Ständen (auch die Zwischenstände mehrseitiger Änderungen) werden nie wieder gestellt
+                String currentQuery = "modified_after=" + URLEncoder.encode(newestFetched.get(), StandardCharsets.UTF_8) + "&";
+                upstreamValidators.keySet().removeIf(url -> url.contains("modified_after=") && !url.contains(currentQuery));
+                newestModified = newestFetched.get();
+            }
             
             // Update last cache refresh time
             lastCacheUpdate = LocalDateTime.now();
-            System.out.println("Cache refreshed successfully. Cached " + articles.length + " articles.");
+            saveLastCacheUpdate();
+            lastRefreshProcessed = contentProcessed.get() - processedBefore;
+            lastRefreshSkipped = contentSkipped.get() - skippedBefore;
+            System.out.println("Cache refreshed successfully. " + fetchedIds.size() + " changed ("
+                + lastRefreshProcessed + " reformatted, " + lastRefreshSkipped + " unchanged), "
+                + removedIds.size() + " removed, " + articlesCache.size() + " cached articles.");
             
             // Update server status
-            serverStatus.setStatus(ServerStatus.Status.ONLINE);
-            serverStatus.setMessage("Server online, letzte Aktualisierung: " + 
-                DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").format(lastCacheUpdate));
-            serverStatus.setLastUpdate(lastCacheUpdate);
-            saveServerStatus();
+            publishOnlineStatus();
         } catch (Exception e) {
             System.err.println("Error refreshing cache: " + e.getMessage());
-            e.printStackTrace();
+            if (!(e instanceof UpstreamCircuitBreaker.OpenException)) {
+                e.printStackTrace();
+            }
             
             // Update server status
-            if (e instanceof SocketTimeoutException || e.getMessage().contains("Connection")) {
-                serverStatus.setStatus(ServerStatus.Status.WORDPRESS_OFFLINE);
-                serverStatus.setMessage("Die Schul-Website ist nicht erreichbar. Verwende zwischengespeicherte Daten.");
-            } else {
-                serverStatus.setStatus(ServerStatus.Status.ERROR);
-                serverStatus.setMessage("Fehler beim Aktualisieren der Daten: " + e.getMessage());
-            }
-            saveServerStatus();
+            publishRefreshFailure(e);
             
             throw e; // Re-throw to let the caller handle it
         }
     }
     
-    private void loadCachedArticles() {
-        try {
-            // Zuerst versuchen, Artikel aus einzelnen Dateien zu laden
-            Path articlesDir = Paths.get(ARTICLES_DIRECTORY);
-            if (Files.exists(articlesDir)) {
-                Files.list(articlesDir)
-                    .filter(path -> path.toString().endsWith(".json"))
-                    .forEach(path -> {
-                        try {
-                            String articleJson = new String(Files.readAllBytes(path));
-                            Article article = objectMapper.readValue(articleJson, Article.class);
-                            articlesCache.put(article.getId(), article);
-                        } catch (Exception e) {
-                            System.err.println("Error loading article from " + path + ": " + e.getMessage());
-                        }
-                    });
-                
-                if (!articlesCache.isEmpty()) {
-                    System.out.println("Loaded " + articlesCache.size() + " articles from individual files.");
-                    return;
-                }
-            }
-            
-            // Fallback: Versuche, Artikel aus der alten Cache-Datei zu laden
-            Path cacheFile = Paths.get(ARTICLES_CACHE_FILE);
-            if (Files.exists(cacheFile)) {
-                String cachedJson = new String(Files.readAllBytes(cacheFile));
-                Article[] articles = objectMapper.readValue(cachedJson, Article[].class);
-                
-                for (Article article : articles) {
-                    articlesCache.put(article.getId(), article);
-                    // Speichere den Artikel auch in einer eigenen Datei für zukünftige Verwendung
-                    saveArticleToFile(article);
+    /**
+     * Bereitet einen gerade eingelesenen Artikel auf und übernimmt ihn in den Cache.
+     * Wird von den Seiten-Threads aufgerufen, sobald ein Artikel vollständig gelesen ist.
+     */
+    private void ingestArticle(Article article) {
+        // Reformatiere den Artikel
+        reformatArticle(article);
+        // Das Blockmodell gleich hier auf dem Seiten-Thread parsen, nicht erst bei der ersten Anfrage
+        getContentBlocks(article);
+        
+        // Cache the article
+        articlesCache.put(article.getId(), article);
+        searchIndex.update(article);
+        
+        // Featured image: use the cached file or hand the download to the image pipeline
+        if (article.getFeaturedMediaUrl() != null) {
+            String imageFilename = "image_" + article.getId() + ".jpg";
+            Path imagePath = Paths.get(IMAGES_DIRECTORY, imageFilename);
+            if (Files.exists(imagePath)) {
+                article.setCachedImagePath(imageStore.versionedUrl(imageFilename));
+                article.setImageVariants(imageStore.variantUrls(imageFilename));
+                if (article.getImageVariants().isEmpty()) {
+                    // Bild stammt aus der Zeit vor den Varianten: nachträglich erzeugen
+                    imagePipeline.submitTask("variants-" + article.getId(),
+                        () -> onFeaturedImageLanded(article.getId(), imageFilename));
                 }
-                
-                System.out.println("Loaded " + articlesCache.size() + " articles from legacy cache file.");
+            } else {
+                // Der Artikel wird ohne Bild veröffentlicht, der Pfad folgt, sobald das Bild da ist
+                submitFeaturedImage(article);
             }
-        } catch (Exception e) {
-            System.err.println("Error loading cached articles: " + e.getMessage());
-            e.printStackTrace();
         }
+        
+        // Speichere jeden Artikel in einer eigenen Datei
+        saveArticleToFile(article);
     }
     
-    private void saveArticleToFile(Article article) {
-        try {
-            String filename = "article_" + article.getId() + ".json";
-            Path filePath = Paths.get(ARTICLES_DIRECTORY, filename);
-            String json = objectMapper.writeValueAsString(article);
-            Files.write(filePath, json.getBytes());
-        } catch (Exception e) {
-            System.err.println("Error saving article " + article.getId() + " to file: " + e.getMessage());
+    private boolean submitFeaturedImage(Article article) {
+        String imageFilename = "image_" + article.getId() + ".jpg";
+        return imagePipeline.submit("featured-" + article.getId(), article.getFeaturedMediaUrl(),
+            Paths.get(IMAGES_DIRECTORY, imageFilename), landed -> onFeaturedImageLanded(article.getId(), imageFilename));
+    }
+    
+    /**
+     * Stößt Beitragsbilder erneut an, deren Download gescheitert ist oder nicht mehr in die
+     * Warteschlange passte. Neueste Artikel zuerst; es wird nur so lange eingereiht, wie die
+     * Hälfte der Warteschlange frei bleibt.
+     */
+    private void retryMissingFeaturedImages() {
+        int submitted = 0;
+        for (Article article : snapshot.get().getArticles()) {
+            if (article.getFeaturedMediaUrl() == null || article.getCachedImagePath() != null) {
+                continue;
+            }
+            if (!imagePipeline.hasCapacity(0.5)) {
+                break;
+            }
+            // Bereits geladen, aber der Snapshot ist noch nicht neu veröffentlicht
+            if (!Files.exists(Paths.get(IMAGES_DIRECTORY, "image_" + article.getId() + ".jpg"))
+                    && submitFeaturedImage(article)) {
+                submitted++;
+            }
+        }
+        if (submitted > 0) {
+            System.out.println("Retrying " + submitted + " missing featured images.");
         }
     }
     
-    private void saveArticlesList() {
+    /**
+     * Trägt den Bildpfad nach, sobald ein Bild heruntergeladen wurde.
+     * Veröffentlichte Artikel werden nicht verändert, sondern durch eine Kopie ersetzt.
+     */
+    private void onFeaturedImageLanded(int articleId, String imageFilename) {
+        imageStore.invalidate(imageFilename);
+        String cachedImagePath = imageStore.versionedUrl(imageFilename);
+        
+        // Verkleinerte Varianten direkt beim Download erzeugen, noch auf dem Worker-Thread
+        Map<Integer, String> variants;
         try {
-            List<Article> articles = new ArrayList<>(articlesCache.values());
-            String json = objectMapper.writeValueAsString(articles);
-            Files.write(Paths.get(ARTICLES_CACHE_FILE), json.getBytes());
-        } catch (Exception e) {
-            System.err.println("Error saving articles list to cache: " + e.getMessage());
-            e.printStackTrace();
+            variants = imageStore.createVariants(imageFilename);
+        } catch (IOException e) {
+            System.err.println("Error creating image variants for " + imageFilename + ": " + e.getMessage());
+            variants = Collections.emptyMap();
+        }
+        
+        Map<Integer, String> imageVariants = variants;
+        Article updated = articlesCache.computeIfPresent(articleId, (id, article) -> {
+            Article copy = article.copy();
+            copy.setCachedImagePath(cachedImagePath);
+            copy.setImageVariants(imageVariants);
+            return copy;
+        });
+        if (updated != null) {
+            saveArticleToFile(updated);
+            scheduleSnapshotRepublish();
         }
     }
     
-    private void saveArticlesToCache() {
-        // Speichere jeden Artikel in einer eigenen Datei
-        for (Article article : articlesCache.values()) {
-            saveArticleToFile(article);
+    private void scheduleSnapshotRepublish() {
+        if (!snapshotRepublishPending.compareAndSet(false, true)) {
+            return;
         }
-        
-        // Speichere auch die Artikelliste für Kompatibilität
-        saveArticlesList();
+        // Auf dem Refresh-Thread, damit Snapshots nie parallel gebaut werden
+        refreshExecutor.execute(() -> {
+            snapshotRepublishPending.set(false);
+            try {
+                publishSnapshot();
+                saveArticlesList();
+                articleStore.commit();
+                saveSnapshotFile();
+            } catch (IOException e) {
+                System.err.println("Error republishing article snapshot: " + e.getMessage());
+            }
+        });
     }
     
-    private void loadServerStatus() {
-        try {
-            Path statusFile = Paths.get(SERVER_STATUS_FILE);
-            if (Files.exists(statusFile)) {
-                String statusJson = new String(Files.readAllBytes(statusFile));
-                serverStatus = objectMapper.readValue(statusJson, ServerStatus.class);
-                System.out.println("Loaded server status from cache.");
-            } else {
-                // Initialize with default values
-                serverStatus.setStatus(ServerStatus.Status.STARTING);
-                serverStatus.setMessage("Server wird gestartet...");
-                serverStatus.setLastUpdate(LocalDateTime.now());
-                saveServerStatus();
+    /**
+     * Entfernt alle Artikel aus Cache und Dateisystem, die WordPress nicht mehr liefert.
+     */
+    private List<Integer> removeArticlesNotIn(Set<Integer> existingIds) {
+        List<Integer> removedIds = new ArrayList<>();
+        for (Integer id : new ArrayList<>(articlesCache.keySet())) {
+            if (!existingIds.contains(id)) {
+                articlesCache.remove(id);
+                searchIndex.remove(id);
+                contentBlocks.remove(id);
+                sourceHashes.remove(id);
+                removedIds.add(id);
+                try {
+                    articleStore.delete(id);
+                } catch (IOException e) {
+                    System.err.println("Error deleting cached article " + id + ": " + e.getMessage());
+                }
             }
-        } catch (Exception e) {
-            System.err.println("Error loading server status: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Initialize with default values
-            serverStatus.setStatus(ServerStatus.Status.ERROR);
-            serverStatus.setMessage("Fehler beim Laden des Server-Status: " + e.getMessage());
-            serverStatus.setLastUpdate(LocalDateTime.now());
-            saveServerStatus();
         }
+        return removedIds;
     }
     
-    private void saveServerStatus() {
-        try {
-            String json = objectMapper.writeValueAsString(serverStatus);
-            Files.write(Paths.get(SERVER_STATUS_FILE), json.getBytes());
-        } catch (Exception e) {
-            System.err.println("Error saving server status: " + e.getMessage());
-            e.printStackTrace();
+    private static String findNewestModified(Collection<Article> articles, String current) {
+        String newest = current;
+        for (Article article : articles) {
+            newest = newerModified(newest, article.getModified());
         }
+        return newest;
     }
     
-    private String fetchDataFromWordPress(String apiUrl) throws IOException {
-        URL url = new URL(apiUrl);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setConnectTimeout(CONNECTION_TIMEOUT);
-        connection.setReadTimeout(READ_TIMEOUT);
-        
-        int responseCode = connection.getResponseCode();
-        if (responseCode != HttpURLConnection.HTTP_OK) {
-            throw new IOException("HTTP error code: " + responseCode);
-        }
-        
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-            return reader.lines().collect(Collectors.joining());
-        } finally {
-            connection.disconnect();
+    private static String newerModified(String current, String candidate) {
+        // ISO-8601 ohne Zeitzone lässt sich lexikografisch vergleichen
+        if (candidate != null && (current == null || candidate.compareTo(current) > 0)) {
+            return candidate;
         }
+        return current;
     }
     
-    private void downloadImage(String imageUrl, Path destination) {
-        try {
-            URL url = new URL(imageUrl);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setConnectTimeout(CONNECTION_TIMEOUT);
-            connection.setReadTimeout(READ_TIMEOUT);
-            
-            try (InputStream in = connection.getInputStream()) {
-                Files.copy(in, destination, StandardCopyOption.REPLACE_EXISTING);
-            } finally {
-                connection.disconnect();
+    /**
+     * Lädt die Bilder der neuesten Artikel in den Speicher-Cache.
+     */
+    private void warmHotImages() {
+        List<Article> newest = snapshot.get().getArticles();
+        for (Article article : newest.subList(0, Math.min(Math.max(0, hotImageCacheWarmArticles), newest.size()))) {
+            if (article.getCachedImagePath() != null) {
+                imageStore.warm("image_" + article.getId() + ".jpg");
             }
-        } catch (Exception e) {
-            System.err.println("Error downloading image from " + imageUrl + ": " + e.getMessage());
-            e.printStackTrace();
         }
     }
     
-    // Helper method to process WordPress content
-    private String processWordPressContent(String content) {
-        if (content == null) return "";
+    /**
+     * Baut aus dem aktuellen Cache einen neuen unveränderlichen Snapshot und
+     * veröffentlicht ihn mit einem einzigen atomaren Tausch.
+     */
+    private void publishSnapshot() throws JsonProcessingException {
+        ArticleSnapshot previous = snapshot.get();
+        ArticleSnapshot next = ArticleSnapshot.build(previous.getVersion() + 1, articlesCache.values(), previous,
+            objectMapper, responseCompression);
+        snapshot.set(next);
+        // Im Konstruktor gibt es noch keinen Stream und keine Clients
+        if (articleEvents != null) {
+            articleEvents.publish(previous, next);
+        }
+    }
+    
+    /**
+     * Blendet die Snapshot-Datei ein und veröffentlicht sie sofort als Snapshot, sofern sie
+     * zum Manifest der Artikeldateien passt. Der Artikel-Cache, der Suchindex und der Stand für
+     * inkrementelle Abfragen werden danach auf dem Refresh-Thread aufgebaut, also immer vor
+     * dem ersten Refresh.
+     *
+     * @return {@code false}, wenn die Datei fehlt oder veraltet ist und alles einzeln geladen werden muss
+     */
+    private boolean restoreFromSnapshotFile() {
+        Path snapshotFile = Paths.get(SNAPSHOT_FILE);
+        if (!Files.exists(snapshotFile)) {
+            return false;
+        }
         
-        // Remove any truncation markers that WordPress might add
-        String processedContent = content;
+        try {
+            ArticleSnapshotFile mapped = ArticleSnapshotFile.open(snapshotFile, smileMapper);
+            Map<Integer, String> manifest = articleStore.readManifest();
+            if (manifest == null || !manifest.equals(mapped.getStoreHashes())) {
+                System.out.println("Snapshot file does not match the article cache, loading articles individually");
+                return false;
+            }
+            
+            articleStore.adopt(manifest);
+            ArticleSnapshot restored = ArticleSnapshot.fromFile(1, mapped, objectMapper, responseCompression);
+            snapshot.set(restored);
+            restoreLastCacheUpdate();
+            refreshExecutor.execute(() -> hydrateFromSnapshot(restored));
+            System.out.println("Mapped " + mapped.size() + " articles from snapshot file.");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error reading snapshot file: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Dekodiert alle Artikel des eingeblendeten Snapshots in den Artikel-Cache. Läuft auf dem
+     * Refresh-Thread nach dem Start, damit der erste Refresh den vollständigen Cache vorfindet.
+     */
+    private void hydrateFromSnapshot(ArticleSnapshot restored) {
+        try {
+            for (Article article : restored.getArticles()) {
+                articlesCache.putIfAbsent(article.getId(), article);
+            }
+        } catch (UncheckedIOException e) {
+            System.err.println("Error decoding snapshot file, loading articles individually: " + e.getMessage());
+            articlesCache.clear();
+            loadCachedArticles();
+            try {
+                publishSnapshot();
+            } catch (JsonProcessingException ex) {
+                System.err.println("Error publishing article snapshot: " + ex.getMessage());
+            }
+        }
+        newestModified = predatesFeaturedMedia() ? null : findNewestModified(articlesCache.values(), null);
+        loadSearchIndex();
+    }
+    
+    /**
+     * Schreibt die Bild-URLs von Artikeln um, die vor dem Umleiten der eingebetteten Bilder
+     * gespeichert wurden, und stößt das Laden der noch fehlenden Bilder an. Danach ist das
+     * ein reiner Durchlauf ohne Änderungen.
+     */
+    private void proxyCachedInlineImages() {
+        int updated = 0;
+        for (Article article : articlesCache.values()) {
+            String content = article.getContent() == null ? null : article.getContent().getRendered();
+            String excerpt = article.getExcerpt() == null ? null : article.getExcerpt().getRendered();
+            String proxiedContent = inlineImages.rewrite(content);
+            String proxiedExcerpt = inlineImages.rewrite(excerpt);
+            if (proxiedContent == content && proxiedExcerpt == excerpt) {
+                continue;
+            }
+            
+            // Veröffentlichte Artikel werden nicht verändert, sondern durch eine Kopie ersetzt
+            // (copy() teilt die RenderedContent-Objekte, daher neue setzen)
+            Article copy = article.copy();
+            if (proxiedContent != content) {
+                RenderedContent rendered = new RenderedContent();
+                rendered.setRendered(proxiedContent);
+                copy.setContent(rendered);
+            }
+            if (proxiedExcerpt != excerpt) {
+                RenderedContent rendered = new RenderedContent();
+                rendered.setRendered(proxiedExcerpt);
+                copy.setExcerpt(rendered);
+            }
+            articlesCache.put(copy.getId(), copy);
+            saveArticleToFile(copy);
+            updated++;
+        }
+        
+        if (updated > 0) {
+            System.out.println("Proxied inline images of " + updated + " cached articles");
+            try {
+                publishSnapshot();
+                saveArticlesList();
+                articleStore.commit();
+                saveSnapshotFile();
+            } catch (IOException e) {
+                System.err.println("Error republishing article snapshot: " + e.getMessage());
+            }
+        }
+        inlineImages.save();
+        inlineImages.prefetchMissing();
+    }
+    
+    /**
+     * Früher wurden featured_media und das eingebettete Bild nicht übernommen. Enthält der Cache
+     * nur solche Artikel, holt ein einmaliger vollständiger Abgleich Medien-ID und Bild-URL nach.
+     */
+    private boolean predatesFeaturedMedia() {
+        if (articlesCache.isEmpty()) {
+            return false;
+        }
+        for (Article article : articlesCache.values()) {
+            if (article.getFeaturedMedia() != 0 || article.getFeaturedMediaUrl() != null) {
+                return false;
+            }
+        }
+        System.out.println("Cached articles have no featured media, fetching the whole archive once");
+        return true;
+    }
+    
+    private void saveSnapshotFile() {
+        try {
+            ArticleSnapshot current = snapshot.get();
+            ArticleSnapshotFile.write(Paths.get(SNAPSHOT_FILE), current.getArticles(), current.getArticlesResponse(),
+                objectMapper, smileMapper);
+        } catch (IOException e) {
+            System.err.println("Error saving snapshot file: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Lädt die gespeicherten Artikel. Dateien, die nicht zum Manifest passen oder sich nicht
+     * lesen lassen, werden verworfen.
+     *
+     * @return {@code false}, wenn Artikel verworfen wurden und der Cache daher unvollständig ist
+     */
+    private boolean loadCachedArticles() {
+        try {
+            // Zuerst versuchen, Artikel aus einzelnen Dateien zu laden
+            ArticleStore.LoadResult stored = articleStore.load();
+            int rejected = stored.getRejected();
+            for (Map.Entry<Integer, byte[]> entry : stored.getArticles().entrySet()) {
+                try {
+                    Article article = objectMapper.readValue(entry.getValue(), Article.class);
+                    articlesCache.put(article.getId(), article);
+                } catch (Exception e) {
+                    System.err.println("Error loading article " + entry.getKey() + ": " + e.getMessage());
+                    articleStore.forget(entry.getKey());
+                    rejected++;
+                }
+            }
+            articleStore.commit();
+            
+            if (!articlesCache.isEmpty()) {
+                restoreLastCacheUpdate();
+                System.out.println("Loaded " + articlesCache.size() + " articles from individual files"
+                    + (rejected > 0 ? ", discarded " + rejected + "." : "."));
+                return rejected == 0;
+            }
+            
+            // Fallback: Versuche, Artikel aus der alten Cache-Datei zu laden
+            Path cacheFile = Paths.get(ARTICLES_CACHE_FILE);
+            if (Files.exists(cacheFile)) {
+                Article[] articles = objectMapper.readValue(Files.readAllBytes(cacheFile), Article[].class);
+                
+                for (Article article : articles) {
+                    articlesCache.put(article.getId(), article);
+                    // Speichere den Artikel auch in einer eigenen Datei für zukünftige Verwendung
+                    saveArticleToFile(article);
+                }
+                articleStore.commit();
+                
+                restoreLastCacheUpdate();
+                System.out.println("Loaded " + articlesCache.size() + " articles from legacy cache file.");
+            }
+            return rejected == 0;
+        } catch (Exception e) {
+            System.err.println("Error loading cached articles: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    private void restoreLastCacheUpdate() {
+        try {
+            Path lastRefreshFile = Paths.get(LAST_REFRESH_FILE);
+            if (Files.exists(lastRefreshFile)) {
+                lastCacheUpdate = LocalDateTime.parse(
+                    new String(Files.readAllBytes(lastRefreshFile), StandardCharsets.UTF_8).trim());
+                return;
+            }
+        } catch (IOException | DateTimeParseException e) {
+            System.err.println("Error reading last refresh time: " + e.getMessage());
+        }
         
-        // Replace any "[&hellip;]" or similar truncation markers
-        processedContent = processedContent.replaceAll("\\[&hellip;\\]", "");
-        processedContent = processedContent.replaceAll("\\[…\\]", "");
-        processedContent = processedContent.replaceAll("\\[&#8230;\\]", "");
+        // Cache aus der Zeit vor last-refresh.txt: Änderungszeit der Artikelliste als Näherung
+        try {
+            Path cacheFile = Paths.get(ARTICLES_CACHE_FILE);
+            if (Files.exists(cacheFile)) {
+                lastCacheUpdate = LocalDateTime.ofInstant(
+                    Files.getLastModifiedTime(cacheFile).toInstant(), ZoneId.systemDefault());
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading cache timestamp: " + e.getMessage());
+        }
+    }
+    
+    private void saveArticleToFile(Article article) {
+        try {
+            // Unveränderte Artikel werden nicht erneut geschrieben, festgeschrieben wird beim nächsten commit()
+            articleStore.write(article.getId(), objectMapper.writeValueAsBytes(article));
+        } catch (Exception e) {
+            System.err.println("Error saving article " + article.getId() + " to file: " + e.getMessage());
+        }
+    }
+    
+    private void saveLastCacheUpdate() {
+        try {
+            ArticleStore.writeAtomically(Paths.get(LAST_REFRESH_FILE),
+                lastCacheUpdate.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.err.println("Error saving last refresh time: " + e.getMessage());
+        }
+    }
+    
+    private void saveArticlesList() {
+        try {
+            List<Article> articles = new ArrayList<>(articlesCache.values());
+            byte[] json = objectMapper.writeValueAsBytes(articles);
+            String hash = ArticleStore.hash(json);
+            if (!hash.equals(articlesListHash)) {
+                ArticleStore.writeAtomically(Paths.get(ARTICLES_CACHE_FILE), json);
+                articlesListHash = hash;
+            }
+        } catch (Exception e) {
+            System.err.println("Error saving articles list to cache: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Lädt den gespeicherten Suchindex und gleicht ihn mit den geladenen Artikeln ab.
+     * Fehlt die Datei, wird der Index aus den Artikeln neu aufgebaut.
+     */
+    private void loadSearchIndex() {
+        Path indexFile = Paths.get(SEARCH_INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            try {
+                searchIndex.load(indexFile, objectMapper);
+            } catch (IOException e) {
+                System.err.println("Error loading search index, rebuilding: " + e.getMessage());
+            }
+        }
         
-        // Fix any incomplete HTML tags
-        if (!processedContent.contains("</p>") && processedContent.contains("<p>")) {
-            processedContent += "</p>";
+        boolean changed = searchIndex.retainOnly(articlesCache.keySet());
+        for (Article article : articlesCache.values()) {
+            changed |= searchIndex.update(article);
+        }
+        if (changed) {
+            saveSearchIndex();
+        }
+        System.out.println("Search index ready with " + searchIndex.size() + " articles");
+    }
+    
+    private void saveSearchIndex() {
+        try {
+            searchIndex.save(Paths.get(SEARCH_INDEX_FILE), objectMapper);
+        } catch (IOException e) {
+            System.err.println("Error saving search index: " + e.getMessage());
+        }
+    }
+    
+    private void saveArticlesToCache() {
+        // Speichere jeden Artikel in einer eigenen Datei
+        for (Article article : articlesCache.values()) {
+            saveArticleToFile(article);
         }
         
-        // Fix WordPress "read more" links
-        processedContent = processedContent.replaceAll("<a class=\"more-link\"[^>]*>.*?</a>", "");
+        // Speichere auch die Artikelliste für Kompatibilität
+        saveArticlesList();
+    }
+    
+    private void publishOnlineStatus() {
+        serverStatus.publish(ServerStatus.Status.ONLINE, "Server online, letzte Aktualisierung: " +
+            DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").format(lastCacheUpdate), lastCacheUpdate);
+    }
+    
+    /**
+     * Offline ist WordPress, solange der Schutzschalter nicht geschlossen ist; alles andere ist ein Fehler.
+     */
+    private void publishRefreshFailure(Exception e) {
+        if (e == null || e instanceof UpstreamCircuitBreaker.OpenException
+                || upstreamBreaker.getState() != UpstreamCircuitBreaker.State.CLOSED) {
+            serverStatus.publish(ServerStatus.Status.WORDPRESS_OFFLINE,
+                "Die Schul-Website ist nicht erreichbar. Verwende zwischengespeicherte Daten.", LocalDateTime.now());
+        } else {
+            serverStatus.publish(ServerStatus.Status.ERROR,
+                "Fehler beim Aktualisieren der Daten: " + (e.getMessage() != null ? e.getMessage() : e.toString()),
+                LocalDateTime.now());
+        }
+    }
+    
+    /**
+     * Lädt das komplette Archiv. Die erste Seite liefert über X-WP-TotalPages die
+     * Seitenanzahl, die restlichen Seiten werden parallel (begrenzt) geladen.
+     * Jeder Artikel wird direkt nach dem Einlesen an den Consumer übergeben.
+     * Bei bedingten Anfragen werden Seiten, die WordPress mit 304 beantwortet, nicht gelesen.
+     */
+    private FetchResult fetchAllArticles(String query, Consumer<Article> consumer, boolean conditional)
+            throws IOException {
+        WordPressPage firstPage = fetchArticlesPage(query, 1, consumer, conditional);
+        FetchResult result = new FetchResult(firstPage.getTotal());
+        result.add(firstPage);
         
-        // Fix WordPress protected content placeholders
-        processedContent = processedContent.replaceAll("\\(Passwortgeschützer Inhalt\\)", "");
+        List<Future<WordPressPage>> remainingPages = new ArrayList<>();
+        for (int page = 2; page <= firstPage.getTotalPages(); page++) {
+            final int pageNumber = page;
+            remainingPages.add(pageFetchExecutor.submit(
+                () -> fetchArticlesPage(query, pageNumber, consumer, conditional)));
+        }
         
-        // Fix WordPress excerpt ellipsis
-        processedContent = processedContent.replaceAll("&hellip;", "...");
+        try {
+            for (Future<WordPressPage> page : remainingPages) {
+                result.add(page.get());
+            }
+        } catch (ExecutionException e) {
+            remainingPages.forEach(page -> page.cancel(true));
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error fetching WordPress archive page", cause);
+        } catch (InterruptedException e) {
+            remainingPages.forEach(page -> page.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching WordPress archive", e);
+        }
         
-        // Remove any WordPress shortcodes that might be causing issues
-        processedContent = processedContent.replaceAll("\\[\\/?[^\\]]+\\]", "");
+        System.out.println("Fetched " + result.getFetched() + " of " + firstPage.getTotal() + " articles from "
+            + firstPage.getTotalPages() + " pages (" + result.getNotModifiedPages() + " not modified).");
+        return result;
+    }
+    
+    /**
+     * Lädt alle seit {@code since} geänderten Artikel. Geblättert wird nicht über Seitennummern,
+     * sondern über den modified-Zeitstempel (Keyset): ein Artikel, der sich während des Ladens
+     * ändert, wandert ans Ende, ohne dass andere Artikel über eine Seitengrenze rutschen und
+     * fehlen. Die Seiten folgen daher nacheinander; nur die erste wird bedingt angefragt.
+     */
+    private void fetchChangedArticles(String since, Consumer<Article> consumer) throws IOException {
+        Set<Integer> seenIds = new HashSet<>();
+        String cursor = since;
+        int pages = 0;
+        while (true) {
+            AtomicReference<String> newestOnPage = new AtomicReference<>(cursor);
+            AtomicInteger newOnPage = new AtomicInteger();
+            WordPressPage page = fetchArticlesPage(ARTICLES_QUERY + "&orderby=modified&order=asc&modified_after="
+                + URLEncoder.encode(cursor, StandardCharsets.UTF_8), 1, article -> {
+                    newestOnPage.accumulateAndGet(article.getModified(), WordPressService::newerModified);
+                    // Die Sekunde an der Seitengrenze wird doppelt geladen, bekannte Artikel überspringen
+                    if (seenIds.add(article.getId())) {
+                        newOnPage.incrementAndGet();
+                        consumer.accept(article);
+                    }
+                }, pages == 0);
+            pages++;
+            if (page.isNotModified() || page.getCount() < WORDPRESS_PAGE_SIZE || newOnPage.get() == 0) {
+                break;
+            }
+            // modified_after ist exklusiv und sekundengenau: eine Sekunde zurück, damit gleich alte
+            // Artikel jenseits der Seitengrenze nicht verloren gehen
+            cursor = LocalDateTime.parse(newestOnPage.get()).minusSeconds(1)
+                .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        }
+        System.out.println("Fetched " + seenIds.size() + " changed articles from " + pages + " pages.");
+    }
+    
+    private WordPressPage fetchArticlesPage(String query, int page, Consumer<Article> consumer, boolean conditional)
+            throws IOException {
+        String apiUrl = wordpressBaseUrl + WORDPRESS_POSTS_PATH + "?" + query
+            + "&per_page=" + WORDPRESS_PAGE_SIZE + "&page=" + page;
+        return fetchDataFromWordPress(apiUrl, consumer, conditional);
+    }
+    
+    private WordPressPage fetchDataFromWordPress(String apiUrl, Consumer<Article> consumer, boolean conditional)
+            throws IOException {
+        HttpGet request = new HttpGet(apiUrl);
+        UpstreamValidators validators = conditional ? upstreamValidators.get(apiUrl) : null;
+        if (validators != null) {
+            if (validators.getEtag() != null) {
+                request.setHeader("If-None-Match", validators.getEtag());
+            }
+            if (validators.getLastModified() != null) {
+                request.setHeader("If-Modified-Since", validators.getLastModified());
+            }
+            conditionalRequests.incrementAndGet();
+        }
         
-        // Fix abrupt ending with ellipsis
-        if (processedContent.endsWith("...") || processedContent.endsWith("…")) {
-            processedContent = processedContent.replaceAll("\\.\\.$", "");
-            processedContent = processedContent.replaceAll("…$", "");
+        // Bei offenem Schutzschalter sofort scheitern statt auf Connect- und Read-Timeout zu warten
+        boolean probe = upstreamBreaker.acquire();
+        boolean reported = false;
+        try {
+            CloseableHttpResponse response;
+            try {
+                response = httpClient.execute(request);
+            } catch (IOException e) {
+                reported = true;
+                upstreamBreaker.recordFailure();
+                throw e;
+            }
+            
+            try (response) {
+                HttpEntity entity = response.getEntity();
+                int responseCode = response.getStatusLine().getStatusCode();
+                
+                WordPressPage page = new WordPressPage();
+                if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && validators != null) {
+                    // Unverändert: nichts zu parsen, Seitenangaben stammen aus der letzten Antwort
+                    EntityUtils.consume(entity);
+                    notModifiedResponses.incrementAndGet();
+                    reported = true;
+                    upstreamBreaker.recordSuccess();
+                    page.setNotModified(true);
+                    page.setTotal(validators.getTotal());
+                    page.setTotalPages(validators.getTotalPages());
+                    return page;
+                }
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    EntityUtils.consume(entity);
+                    // Nur Serverfehler und Drosselung sprechen gegen die Erreichbarkeit, 4xx ist unser Fehler
+                    reported = true;
+                    if (responseCode >= 500 || responseCode == 429) {
+                        upstreamBreaker.recordFailure();
+                    } else {
+                        upstreamBreaker.recordSuccess();
+                    }
+                    throw new IOException("HTTP error code: " + responseCode);
+                }
+                
+                page.setTotal(getIntHeader(response, "X-WP-Total", -1));
+                page.setTotalPages(getIntHeader(response, "X-WP-TotalPages", 1));
+                
+                try (InputStream in = entity.getContent()) {
+                    page.setCount(streamArticles(in, consumer));
+                } catch (JsonProcessingException e) {
+                    // Kaputtes JSON: WordPress antwortet, der Schalter bleibt unberührt
+                    throw e;
+                } catch (IOException e) {
+                    // Abbruch oder Timeout mitten in der Antwort
+                    reported = true;
+                    upstreamBreaker.recordFailure();
+                    throw e;
+                } finally {
+                    // Rest der Antwort lesen, damit die Verbindung in den Pool zurückkehrt
+                    EntityUtils.consume(entity);
+                }
+                
+                reported = true;
+                upstreamBreaker.recordSuccess();
+                rememberValidators(apiUrl, response, page);
+                return page;
+            }
+        } finally {
+            // Ohne Ergebnis (kaputtes JSON, Fehler beim Verarbeiten eines Artikels) gibt die
+            // Probeanfrage den halb offenen Schalter wieder frei, sonst bliebe er für immer zu
+            if (probe && !reported) {
+                upstreamBreaker.release();
+            }
+        }
+    }
+    
+    private void rememberValidators(String apiUrl, CloseableHttpResponse response, WordPressPage page) {
+        Header etag = response.getFirstHeader("ETag");
+        Header lastModified = response.getFirstHeader("Last-Modified");
+        if (etag == null && lastModified == null) {
+            upstreamValidators.remove(apiUrl);
+            return;
         }
         
-        return processedContent;
+        UpstreamValidators validators = new UpstreamValidators();
+        validators.setEtag(etag == null ? null : etag.getValue());
+        validators.setLastModified(lastModified == null ? null : lastModified.getValue());
+        validators.setTotal(page.getTotal());
+        validators.setTotalPages(page.getTotalPages());
+        upstreamValidators.put(apiUrl, validators);
+    }
+    
+    private static int getIntHeader(CloseableHttpResponse response, String name, int defaultValue) {
+        Header header = response.getFirstHeader(name);
+        if (header == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(header.getValue().trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Verbindungspool-Statistik je Host und Anteil der bedingten WordPress-Anfragen.
+     */
+    private Map<String, Object> getHttpClientMetrics() {
+        Map<String, Object> hosts = new LinkedHashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            hosts.put(route.getTargetHost().toURI(), poolStatsToMap(connectionManager.getStats(route)));
+        }
+        
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("total", poolStatsToMap(connectionManager.getTotalStats()));
+        metrics.put("hosts", hosts);
+        metrics.put("conditionalRequests", conditionalRequests.get());
+        metrics.put("notModifiedResponses", notModifiedResponses.get());
+        return metrics;
+    }
+    
+    private static Map<String, Object> poolStatsToMap(PoolStats stats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("available", stats.getAvailable());
+        map.put("pending", stats.getPending());
+        map.put("max", stats.getMax());
+        return map;
+    }
+    
+    /**
+     * Liest ein JSON-Array von Posts Token für Token direkt aus dem Stream,
+     * sodass immer nur ein Artikel gleichzeitig im Speicher liegt.
+     */
+    private int streamArticles(InputStream in, Consumer<Article> consumer) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Unexpected WordPress response: expected a JSON array");
+            }
+            
+            int count = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                consumer.accept(objectMapper.readValue(parser, Article.class));
+                count++;
+            }
+            return count;
+        }
+    }
+    
+    /**
+     * Blockmodell des Artikelinhalts; geparst wird nur, wenn sich der Inhalt seit dem letzten
+     * Mal geändert hat.
+     */
+    private List<ContentBlocks.Block> getContentBlocks(Article article) {
+        String html = article.getContent() == null ? null : article.getContent().getRendered();
+        ParsedContent parsed = contentBlocks.get(article.getId());
+        if (parsed != null && Objects.equals(parsed.getSource(), html)) {
+            return parsed.getBlocks();
+        }
+        
+        parsed = new ParsedContent(html, ContentBlocks.parse(html, wordpressBaseUrl));
+        contentBlocks.put(article.getId(), parsed);
+        contentBlocksParsed.incrementAndGet();
+        return parsed.getBlocks();
     }
     
     /**
@@ -472,24 +1672,33 @@ public class WordPressService {
      * - Bereinigt HTML-Inhalte
      * - Verbessert die Lesbarkeit
      * - Entfernt unnötige Elemente
+     * - Leitet eingebettete Bilder über /api/images um
+     * Ist der Artikel unverändert im Cache, werden dessen aufbereitete Texte übernommen.
      */
     private void reformatArticle(Article article) {
+        long sourceHash = sourceHash(article);
+        Long previousHash = sourceHashes.put(article.getId(), sourceHash);
+        if (reuseProcessedContent(article, previousHash == null || previousHash == sourceHash)) {
+            contentSkipped.incrementAndGet();
+            return;
+        }
+        
         // Verarbeite den Inhalt
         if (article.getContent() != null) {
-            String processedContent = processWordPressContent(article.getContent().getRendered());
-            article.getContent().setRendered(processedContent);
+            String processedContent = ContentNormalizer.normalize(article.getContent().getRendered());
+            article.getContent().setRendered(inlineImages.rewrite(processedContent));
         }
         
         // Verarbeite den Auszug
         if (article.getExcerpt() != null) {
-            String processedExcerpt = processWordPressContent(article.getExcerpt().getRendered());
-            article.getExcerpt().setRendered(processedExcerpt);
+            String processedExcerpt = ContentNormalizer.normalize(article.getExcerpt().getRendered());
+            article.getExcerpt().setRendered(inlineImages.rewrite(processedExcerpt));
         }
         
         // Verarbeite den Titel (entferne HTML-Tags)
         if (article.getTitle() != null) {
             String title = article.getTitle().getRendered();
-            title = title.replaceAll("<[^>]+>", ""); // Entferne HTML-Tags
+            title = ContentNormalizer.stripTags(title); // Entferne HTML-Tags
             article.getTitle().setRendered(title);
         }
         
@@ -507,12 +1716,58 @@ public class WordPressService {
                 System.err.println("Error formatting date for article " + article.getId() + ": " + e.getMessage());
             }
         }
+        
+        contentProcessed.incrementAndGet();
+    }
+    
+    /**
+     * Übernimmt Titel, Auszug, Inhalt und Datum aus dem gecachten Artikel, wenn WordPress ihn seitdem
+     * nicht geändert hat (gleiches modified). Für Artikel, die in diesem Lauf schon aufbereitet
+     * wurden, muss zusätzlich der Hash der Rohtexte passen; nach einem Neustart ist er unbekannt,
+     * dann genügt modified. Das gespeicherte Ergebnis stammt damit unter Umständen von einer
+     * älteren Aufbereitung, wie ohnehin bei allen Artikeln, die der inkrementelle Abruf nicht
+     * erneut liefert.
+     */
+    private boolean reuseProcessedContent(Article article, boolean sourceUnchanged) {
+        Article cached = articlesCache.get(article.getId());
+        if (!sourceUnchanged || cached == null || article.getModified() == null
+                || !article.getModified().equals(cached.getModified())
+                || (cached.getTitle() == null) != (article.getTitle() == null)
+                || (cached.getExcerpt() == null) != (article.getExcerpt() == null)
+                || (cached.getContent() == null) != (article.getContent() == null)) {
+            return false;
+        }
+        
+        if (article.getTitle() != null) {
+            article.getTitle().setRendered(cached.getTitle().getRendered());
+        }
+        if (article.getExcerpt() != null) {
+            article.getExcerpt().setRendered(cached.getExcerpt().getRendered());
+        }
+        if (article.getContent() != null) {
+            article.getContent().setRendered(cached.getContent().getRendered());
+        }
+        article.setDate(cached.getDate());
+        return true;
+    }
+    
+    /**
+     * Hash über die Rohtexte, wie sie von WordPress kommen; erkennt Änderungen, die WordPress
+     * nicht in modified vermerkt (z.B. von Plugins erzeugter Inhalt). Der Suchindex bildet ihn
+     * über die aufbereiteten Texte, die er tatsächlich indiziert.
+     */
+    static long sourceHash(Article article) {
+        String title = article.getTitle() == null ? null : article.getTitle().getRendered();
+        String excerpt = article.getExcerpt() == null ? null : article.getExcerpt().getRendered();
+        String content = article.getContent() == null ? null : article.getContent().getRendered();
+        return (long) Objects.hash(title, excerpt, article.getDate()) << 32 | (Objects.hashCode(content) & 0xFFFFFFFFL);
     }
     
     // Article model class
     public static class Article {
         private int id;
         private String date;
+        private String modified;
         private RenderedContent title;
         private RenderedContent content;
         private RenderedContent excerpt;
@@ -520,6 +1775,7 @@ public class WordPressService {
         private int featuredMedia;
         private String featuredMediaUrl;
         private String cachedImagePath;
+        private Map<Integer, String> imageVariants = Collections.emptyMap();
         
         // Getters and setters
         public int getId() { return id; }
@@ -528,6 +1784,9 @@ public class WordPressService {
         public String getDate() { return date; }
         public void setDate(String date) { this.date = date; }
         
+        public String getModified() { return modified; }
+        public void setModified(String modified) { this.modified = modified; }
+        
         public RenderedContent getTitle() { return title; }
         public void setTitle(RenderedContent title) { this.title = title; }
         
@@ -541,13 +1800,445 @@ public class WordPressService {
         public void setLink(String link) { this.link = link; }
         
         public int getFeaturedMedia() { return featuredMedia; }
+        // WordPress liefert das Feld als featured_media, der Cache als featuredMedia
+        @JsonAlias("featured_media")
         public void setFeaturedMedia(int featuredMedia) { this.featuredMedia = featuredMedia; }
         
         public String getFeaturedMediaUrl() { return featuredMediaUrl; }
         public void setFeaturedMediaUrl(String featuredMediaUrl) { this.featuredMediaUrl = featuredMediaUrl; }
         
+        /**
+         * Übernimmt die URL des eingebetteten Beitragsbildes ({@code _embed=wp:featuredmedia}).
+         * Gewählt wird die kleinste Größe, die für die breiteste Bildvariante reicht, sonst das Original.
+         */
+        @JsonSetter("_embedded")
+        public void setEmbedded(JsonNode embedded) {
+            JsonNode media = embedded.path("wp:featuredmedia").path(0);
+            String url = media.path("source_url").textValue();
+            int neededWidth = ImageStore.VARIANT_WIDTHS[ImageStore.VARIANT_WIDTHS.length - 1];
+            int bestWidth = Integer.MAX_VALUE;
+            for (JsonNode size : media.path("media_details").path("sizes")) {
+                int width = size.path("width").asInt();
+                String sizeUrl = size.path("source_url").textValue();
+                if (sizeUrl != null && width >= neededWidth && width < bestWidth) {
+                    bestWidth = width;
+                    url = sizeUrl;
+                }
+            }
+            if (url != null) {
+                featuredMediaUrl = url;
+            }
+        }
+        
         public String getCachedImagePath() { return cachedImagePath; }
         public void setCachedImagePath(String cachedImagePath) { this.cachedImagePath = cachedImagePath; }
+        
+        // Breite in Pixeln -> URL der verkleinerten Variante
+        public Map<Integer, String> getImageVariants() { return imageVariants; }
+        public void setImageVariants(Map<Integer, String> imageVariants) {
+            this.imageVariants = imageVariants == null ? Collections.emptyMap() : imageVariants;
+        }
+        
+        // Flache Kopie, um veröffentlichte Artikel nicht nachträglich zu verändern
+        public Article copy() {
+            Article copy = new Article();
+            copy.id = id;
+            copy.date = date;
+            copy.modified = modified;
+            copy.title = title;
+            copy.content = content;
+            copy.excerpt = excerpt;
+            copy.link = link;
+            copy.featuredMedia = featuredMedia;
+            copy.featuredMediaUrl = featuredMediaUrl;
+            copy.cachedImagePath = cachedImagePath;
+            copy.imageVariants = imageVariants;
+            return copy;
+        }
+    }
+    
+    /**
+     * Unveränderlicher Stand des Artikel-Caches.
+     * Sortierung und JSON-Serialisierung passieren einmal pro Aktualisierung,
+     * nicht bei jeder Anfrage.
+     */
+    public static final class ArticleSnapshot {
+        static final ArticleSnapshot EMPTY = new ArticleSnapshot(
+            0, Collections.emptyList(), Collections.emptyMap(), new CachedResponse(new byte[0]),
+            new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ObjectMapper(),
+            new ResponseCompression());
+        
+        // Höchstzahl gemerkter Feldauswahlen pro Snapshot, weitere werden pro Anfrage gebaut
+        private static final int MAX_PROJECTIONS = 8;
+        
+        // Newest first; ties broken by id so the order is stable between snapshots
+        static final Comparator<Article> NEWEST_FIRST = Comparator
+            .comparing(Article::getDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Comparator.comparingInt(Article::getId).reversed());
+        
+        private final long version;
+        private final List<Article> articles;
+        private final Map<Integer, Integer> positions;
+        // Die Standardliste mit vollständigen Artikeln (ArticleProjection.FULL_FIELDS)
+        private final CachedResponse articlesResponse;
+        // Bei einem Snapshot aus der Datei werden die Einzelantworten erst beim ersten Abruf erzeugt
+        private final Map<Integer, CachedResponse> articleResponses;
+        // Antworten mit format=blocks, erst beim ersten Abruf serialisiert
+        private final Map<Integer, CachedResponse> blocksResponses;
+        private final Map<Set<String>, ArticleProjection> projections;
+        private final ObjectMapper objectMapper;
+        private final ResponseCompression compression;
+        
+        private ArticleSnapshot(long version, List<Article> articles, Map<Integer, Integer> positions,
+                                CachedResponse articlesResponse, Map<Integer, CachedResponse> articleResponses,
+                                Map<Integer, CachedResponse> blocksResponses,
+                                Map<Set<String>, ArticleProjection> projections, ObjectMapper objectMapper,
+                                ResponseCompression compression) {
+            this.version = version;
+            this.articles = articles;
+            this.positions = positions;
+            this.articlesResponse = articlesResponse;
+            this.articleResponses = articleResponses;
+            this.blocksResponses = blocksResponses;
+            this.projections = projections;
+            this.objectMapper = objectMapper;
+            this.compression = compression;
+        }
+        
+        /**
+         * Baut den Snapshot aus dem Artikel-Cache. Geänderte Artikel ersetzt der Cache durch
+         * Kopien, ein Artikel, der als dieselbe Instanz schon in {@code previous} steht, ist also
+         * unverändert: seine serialisierten und komprimierten Antworten werden übernommen.
+         */
+        static ArticleSnapshot build(long version, Collection<Article> source, ArticleSnapshot previous,
+                                     ObjectMapper objectMapper, ResponseCompression compression)
+                throws JsonProcessingException {
+            List<Article> sorted = new ArrayList<>(source);
+            sorted.sort(NEWEST_FIRST);
+            
+            Map<Integer, Integer> positions = new HashMap<>(sorted.size() * 2);
+            Map<Integer, CachedResponse> responses = new ConcurrentHashMap<>(sorted.size() * 2);
+            Map<Integer, CachedResponse> blocksResponses = new ConcurrentHashMap<>();
+            for (int i = 0; i < sorted.size(); i++) {
+                Article article = sorted.get(i);
+                positions.put(article.getId(), i);
+                CachedResponse response = previous.reusableResponse(previous.articleResponses, article);
+                responses.put(article.getId(), response != null ? response : renderArticle(article, objectMapper, compression));
+                CachedResponse blocksResponse = previous.reusableResponse(previous.blocksResponses, article);
+                if (blocksResponse != null) {
+                    blocksResponses.put(article.getId(), blocksResponse);
+                }
+            }
+            
+            // Die vollständige Liste ist die Standardantwort und wird daher sofort gebaut
+            ArticleProjection previousFull = previous.projections.get(ArticleProjection.FULL_FIELDS);
+            ArticleProjection full = ArticleProjection.build(sorted, ArticleProjection.FULL_FIELDS, previousFull,
+                objectMapper, compression);
+            Map<Set<String>, ArticleProjection> projections = new ConcurrentHashMap<>();
+            if (full == previousFull) {
+                // Artikel und Reihenfolge unverändert: auch die übrigen Feldauswahlen gelten weiter
+                projections.putAll(previous.projections);
+            }
+            projections.put(ArticleProjection.FULL_FIELDS, full);
+            
+            return new ArticleSnapshot(version, Collections.unmodifiableList(sorted),
+                Collections.unmodifiableMap(positions), full.getListResponse(), responses, blocksResponses,
+                projections, objectMapper, compression);
+        }
+        
+        /**
+         * Snapshot direkt aus der eingeblendeten Datei: die Liste ist sofort fertig,
+         * einzelne Artikel werden erst beim ersten Zugriff dekodiert.
+         */
+        static ArticleSnapshot fromFile(long version, ArticleSnapshotFile file, ObjectMapper objectMapper,
+                                        ResponseCompression compression) {
+            return new ArticleSnapshot(version, Collections.unmodifiableList(file.getArticles()),
+                file.getPositions(), file.getListResponse(compression), new ConcurrentHashMap<>(),
+                new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), objectMapper, compression);
+        }
+        
+        // Eine schon erzeugte Antwort dieses Snapshots, sofern sie zu genau dieser Artikel-Instanz gehört
+        private CachedResponse reusableResponse(Map<Integer, CachedResponse> responses, Article article) {
+            CachedResponse response = responses.get(article.getId());
+            return response != null && getArticle(article.getId()) == article ? response : null;
+        }
+        
+        /**
+         * Die Liste in der gewünschten Feldauswahl, einmal pro Snapshot serialisiert.
+         */
+        ArticleProjection getProjection(Set<String> fields) throws JsonProcessingException {
+            ArticleProjection projection = projections.get(fields);
+            if (projection != null) {
+                return projection;
+            }
+            
+            projection = ArticleProjection.build(articles, fields, objectMapper, compression);
+            if (projections.size() < MAX_PROJECTIONS) {
+                ArticleProjection existing = projections.putIfAbsent(fields, projection);
+                return existing != null ? existing : projection;
+            }
+            return projection;
+        }
+        
+        private static CachedResponse renderArticle(Article article, ObjectMapper objectMapper,
+                                                    ResponseCompression compression) throws JsonProcessingException {
+            return CachedResponse.precompressed(objectMapper.writeValueAsBytes(
+                new ApiResponse<>(true, "Artikel erfolgreich geladen", article)), compression);
+        }
+        
+        /**
+         * Der Artikel ohne HTML-Inhalt, stattdessen mit dem Blockmodell unter {@code blocks}.
+         */
+        static ObjectNode blocksView(Article article, List<ContentBlocks.Block> blocks, ObjectMapper objectMapper) {
+            ObjectNode view = objectMapper.valueToTree(article);
+            view.remove("content");
+            view.set("blocks", objectMapper.valueToTree(blocks));
+            return view;
+        }
+        
+        public long getVersion() { return version; }
+        public boolean isEmpty() { return articles.isEmpty(); }
+        public List<Article> getArticles() { return articles; }
+        public Article getArticle(int id) {
+            Integer position = positions.get(id);
+            return position == null ? null : articles.get(position);
+        }
+        public CachedResponse getArticlesResponse() { return articlesResponse; }
+        
+        /**
+         * Liefert den Index des ersten Artikels nach dem Cursor.
+         * Der Cursor kodiert Datum und ID des letzten gelieferten Artikels, damit er
+         * auch nach einer Aktualisierung des Snapshots an der richtigen Stelle weitermacht.
+         */
+        int indexAfter(String cursor) {
+            if (cursor == null || cursor.isEmpty()) {
+                return 0;
+            }
+            
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            
+            Article position = new Article();
+            position.setDate(separator == 0 ? null : decoded.substring(0, separator));
+            position.setId(Integer.parseInt(decoded.substring(separator + 1)));
+            
+            int index = Collections.binarySearch(articles, position, NEWEST_FIRST);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+        
+        static String encodeCursor(Article article) {
+            String date = article.getDate() == null ? "" : article.getDate();
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((date + "|" + article.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        public CachedResponse getArticleResponse(int id) {
+            CachedResponse response = articleResponses.get(id);
+            if (response == null) {
+                Article article = getArticle(id);
+                if (article != null) {
+                    try {
+                        response = renderArticle(article, objectMapper, compression);
+                    } catch (JsonProcessingException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    articleResponses.putIfAbsent(id, response);
+                }
+            }
+            return response;
+        }
+        
+        /**
+         * Wie {@link #getArticleResponse}, aber mit dem Blockmodell statt des HTML-Inhalts.
+         * Das Parsen übernimmt {@code parser}, der Snapshot merkt sich nur die serialisierte Antwort.
+         */
+        CachedResponse getBlocksResponse(int id, Function<Article, List<ContentBlocks.Block>> parser) {
+            CachedResponse response = blocksResponses.get(id);
+            if (response == null) {
+                Article article = getArticle(id);
+                if (article != null) {
+                    try {
+                        response = CachedResponse.precompressed(objectMapper.writeValueAsBytes(new ApiResponse<>(
+                            true, "Artikel erfolgreich geladen", blocksView(article, parser.apply(article), objectMapper))),
+                            compression);
+                    } catch (JsonProcessingException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    blocksResponses.putIfAbsent(id, response);
+                }
+            }
+            return response;
+        }
+    }
+    
+    /**
+     * Ein Suchtreffer mit den wichtigsten Artikeldaten und einem Textausschnitt.
+     * Der Ausschnitt ist HTML-escaped, Fundstellen sind mit {@code <mark>} markiert.
+     */
+    public static class SearchResult {
+        private final int id;
+        private final String title;
+        private final String date;
+        private final String link;
+        private final String cachedImagePath;
+        private final double score;
+        private final String snippet;
+        
+        public SearchResult(Article article, double score, String snippet) {
+            this.id = article.getId();
+            this.title = article.getTitle() == null ? null : article.getTitle().getRendered();
+            this.date = article.getDate();
+            this.link = article.getLink();
+            this.cachedImagePath = article.getCachedImagePath();
+            this.score = score;
+            this.snippet = snippet;
+        }
+        
+        public int getId() { return id; }
+        public String getTitle() { return title; }
+        public String getDate() { return date; }
+        public String getLink() { return link; }
+        public String getCachedImagePath() { return cachedImagePath; }
+        public double getScore() { return score; }
+        public String getSnippet() { return snippet; }
+    }
+    
+    /**
+     * Eine Seite der WordPress-Posts-API samt Angaben zur Archivgröße.
+     */
+    private static class WordPressPage {
+        private int count;
+        private int total;
+        private int totalPages;
+        private boolean notModified;
+        
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+        
+        public boolean isNotModified() { return notModified; }
+        public void setNotModified(boolean notModified) { this.notModified = notModified; }
+        
+        public int getTotal() { return total; }
+        public void setTotal(int total) { this.total = total; }
+        
+        public int getTotalPages() { return totalPages; }
+        public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+    }
+    
+    /**
+     * Zusammenfassung eines Archivabrufs über alle Seiten.
+     */
+    private static class FetchResult {
+        // X-WP-Total der ersten Seite, -1 wenn WordPress keine Angabe macht
+        private final int total;
+        private int fetched;
+        private int pages;
+        private int notModifiedPages;
+        
+        FetchResult(int total) {
+            this.total = total;
+        }
+        
+        void add(WordPressPage page) {
+            fetched += page.getCount();
+            pages++;
+            if (page.isNotModified()) {
+                notModifiedPages++;
+            }
+        }
+        
+        public int getFetched() { return fetched; }
+        public int getPages() { return pages; }
+        public int getNotModifiedPages() { return notModifiedPages; }
+        public int getTotal() { return total; }
+        
+        /**
+         * Ob {@code distinctIds} verschiedene Artikel das ganze Archiv laut X-WP-Total abdecken.
+         * Ohne Angabe von WordPress lässt sich das nicht prüfen und gilt als vollständig.
+         */
+        boolean isComplete(int distinctIds) {
+            return total < 0 || distinctIds >= total;
+        }
+    }
+    
+    /**
+     * Validatoren der letzten erfolgreichen Antwort einer WordPress-URL.
+     */
+    private static class UpstreamValidators {
+        private String etag;
+        private String lastModified;
+        private int total;
+        private int totalPages;
+        
+        public String getEtag() { return etag; }
+        public void setEtag(String etag) { this.etag = etag; }
+        
+        public String getLastModified() { return lastModified; }
+        public void setLastModified(String lastModified) { this.lastModified = lastModified; }
+        
+        public int getTotal() { return total; }
+        public void setTotal(int total) { this.total = total; }
+        
+        public int getTotalPages() { return totalPages; }
+        public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+    }
+    
+    /**
+     * Fertig serialisierter Antwort-Body mit starkem ETag aus dem Inhalts-Hash,
+     * bei Snapshot-Antworten zusätzlich in einer vorab komprimierten Gzip-Variante.
+     */
+    public static final class CachedResponse {
+        private final byte[] body;
+        private final String etag;
+        private final byte[] gzipBody;
+        
+        CachedResponse(byte[] body) {
+            this(body, DigestUtils.md5DigestAsHex(body));
+        }
+        
+        CachedResponse(byte[] body, String etag) {
+            this(body, etag, null);
+        }
+        
+        private CachedResponse(byte[] body, String etag, byte[] gzipBody) {
+            this.body = body;
+            this.etag = etag;
+            this.gzipBody = gzipBody;
+        }
+        
+        /**
+         * Für Antworten, die einen ganzen Snapshot lang ausgeliefert werden: komprimiert einmal vorab.
+         */
+        static CachedResponse precompressed(byte[] body, ResponseCompression compression) {
+            return precompressed(body, DigestUtils.md5DigestAsHex(body), compression);
+        }
+        
+        static CachedResponse precompressed(byte[] body, String etag, ResponseCompression compression) {
+            return new CachedResponse(body, etag, compression.gzip(body));
+        }
+        
+        public byte[] getBody() { return body; }
+        public String getEtag() { return etag; }
+        /** Die Gzip-Variante oder {@code null}, wenn keine vorliegt. */
+        public byte[] getGzipBody() { return gzipBody; }
+    }
+    
+    /**
+     * Das Blockmodell zusammen mit dem HTML, aus dem es entstanden ist.
+     */
+    private static class ParsedContent {
+        private final String source;
+        private final List<ContentBlocks.Block> blocks;
+        
+        ParsedContent(String source, List<ContentBlocks.Block> blocks) {
+            this.source = source;
+            this.blocks = blocks;
+        }
+        
+        public String getSource() { return source; }
+        public List<ContentBlocks.Block> getBlocks() { return blocks; }
     }
     
     public static class RenderedContent {
@@ -557,7 +2248,10 @@ public class WordPressService {
         public void setRendered(String rendered) { this.rendered = rendered; }
     }
     
-    public static class ServerStatus {
+    /**
+     * Unveränderlicher Server-Status; Änderungen werden als neues Objekt veröffentlicht.
+     */
+    public static final class ServerStatus {
         public enum Status {
             ONLINE,
             OFFLINE,
@@ -566,24 +2260,92 @@ public class WordPressService {
             ERROR
         }
         
-        private Status status = Status.STARTING;
-        private String message = "Server wird gestartet...";
-        private LocalDateTime lastUpdate = LocalDateTime.now();
+        private final Status status;
+        private final String message;
+        private final LocalDateTime lastUpdate;
+        private final long snapshotAgeSeconds;
+        private final boolean snapshotStale;
+        private final boolean refreshInProgress;
+        private final List<Transition> history;
         
-        public Status getStatus() { return status; }
-        public void setStatus(Status status) { this.status = status; }
+        ServerStatus(Status status, String message, LocalDateTime lastUpdate) {
+            this(status, message, lastUpdate, 0, false, false, Collections.emptyList());
+        }
         
-        public String getMessage() { return message; }
-        public void setMessage(String message) { this.message = message; }
+        @JsonCreator
+        ServerStatus(@JsonProperty("status") Status status,
+                     @JsonProperty("message") String message,
+                     @JsonProperty("lastUpdate") LocalDateTime lastUpdate,
+                     @JsonProperty("snapshotAgeSeconds") long snapshotAgeSeconds,
+                     @JsonProperty("snapshotStale") boolean snapshotStale,
+                     @JsonProperty("refreshInProgress") boolean refreshInProgress,
+                     @JsonProperty("history") List<Transition> history) {
+            this.status = status == null ? Status.STARTING : status;
+            this.message = message;
+            this.lastUpdate = lastUpdate;
+            this.snapshotAgeSeconds = snapshotAgeSeconds;
+            this.snapshotStale = snapshotStale;
+            this.refreshInProgress = refreshInProgress;
+            this.history = history == null ? Collections.emptyList() : history;
+        }
+        
+        static ServerStatus starting() {
+            return new ServerStatus(Status.STARTING, "Server wird gestartet...", LocalDateTime.now());
+        }
         
+        /**
+         * Kopie mit den Angaben zum Snapshot, die erst beim Abruf bestimmt werden.
+         */
+        ServerStatus withSnapshotInfo(long snapshotAgeSeconds, boolean snapshotStale, boolean refreshInProgress,
+                                      List<Transition> history) {
+            return new ServerStatus(status, message, lastUpdate, snapshotAgeSeconds, snapshotStale,
+                refreshInProgress, history);
+        }
+        
+        ServerStatus withHistory(List<Transition> history) {
+            return new ServerStatus(status, message, lastUpdate, snapshotAgeSeconds, snapshotStale,
+                refreshInProgress, history);
+        }
+        
+        public Status getStatus() { return status; }
+        public String getMessage() { return message; }
         public LocalDateTime getLastUpdate() { return lastUpdate; }
-        public void setLastUpdate(LocalDateTime lastUpdate) { this.lastUpdate = lastUpdate; }
+        public long getSnapshotAgeSeconds() { return snapshotAgeSeconds; }
+        public boolean isSnapshotStale() { return snapshotStale; }
+        public boolean isRefreshInProgress() { return refreshInProgress; }
+        public List<Transition> getHistory() { return history; }
         
         // Hilfsmethode für die JSON-Serialisierung
         public String getLastUpdateFormatted() {
             if (lastUpdate == null) return "";
             return lastUpdate.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
         }
+        
+        /**
+         * Ein Wechsel des Zustands, z.B. von ONLINE nach WORDPRESS_OFFLINE.
+         */
+        public static final class Transition {
+            private final Status from;
+            private final Status to;
+            private final LocalDateTime at;
+            private final String message;
+            
+            @JsonCreator
+            Transition(@JsonProperty("from") Status from,
+                       @JsonProperty("to") Status to,
+                       @JsonProperty("at") LocalDateTime at,
+                       @JsonProperty("message") String message) {
+                this.from = from;
+                this.to = to;
+                this.at = at;
+                this.message = message;
+            }
+            
+            public Status getFrom() { return from; }
+            public Status getTo() { return to; }
+            public LocalDateTime getAt() { return at; }
+            public String getMessage() { return message; }
+        }
     }
     
     public static class ApiResponse<T> {
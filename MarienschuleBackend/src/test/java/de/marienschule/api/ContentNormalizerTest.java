@@ -0,0 +1,71 @@
+package de.marienschule.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Vergleicht den Einzeldurchlauf von {@link ContentNormalizer#normalize} mit der
+ * ursprünglichen Kette aus {@code replaceAll}-Aufrufen.
+ */
+class ContentNormalizerTest {
+
+    private static final String[] MARKERS = {"[&hellip;]", "[…]", "[&#8230;]"};
+
+    private static final String[] TOKENS = {
+        "<p>", "</p>", "<a class=\"more-link\"", "</a>", "(Passwortgeschützer Inhalt)", "&hellip;"
+    };
+
+    // Bausteine für Zufallseingaben: ganze Marken und Bruchstücke, an denen Schritte zusammenwachsen können
+    private static final String[] FRAGMENTS = {
+        "<p>", "</p>", "<p", "</", ">", "<", "p", "<a class=\"more-link\" href=\"/x\">", "<a class=\"more",
+        "-link\" href=\"/y\">", "Weiterlesen", "</a>", "</a", "(Passwortgeschützer Inhalt)",
+        "(Passwortgeschützer Inhalt", "(Passwort", "geschützer Inhalt)", ")", "(", "&hellip;", "&hel", "lip;", "&",
+        "[&hellip;]", "[…]", "[&#8230;]", "[", "]", "[caption id=\"1\"]", "[/caption]", "...", "..", "…", ".",
+        "\n", "Text", " ", "ä"
+    };
+
+    @Test
+    void joinsPlaceholderAcrossRemovedMarker() {
+        assertNormalized("(Passwortgeschützer Inhalt[…])", "");
+        assertNormalized("</p>(Passwortgeschützer Inhalt[&hellip;])[…]", "</p>");
+    }
+
+    @Test
+    void joinsEveryTokenSplitByMarker() {
+        for (String token : TOKENS) {
+            for (int split = 1; split < token.length(); split++) {
+                for (String marker : MARKERS) {
+                    String input = token.substring(0, split) + marker + token.substring(split);
+                    assertMatchesStepwise(input);
+                    assertMatchesStepwise("<p>Text " + input + " mehr</p>");
+                    assertMatchesStepwise("Text" + input + "</a>…");
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesStepwiseOnRandomInput() {
+        Random random = new Random(20261017L);
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder input = new StringBuilder();
+            int count = 1 + random.nextInt(12);
+            for (int j = 0; j < count; j++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertMatchesStepwise(input.toString());
+        }
+    }
+
+    private static void assertNormalized(String input, String expected) {
+        assertEquals(expected, ContentNormalizer.normalizeStepwise(input), "Referenz für " + input);
+        assertEquals(expected, ContentNormalizer.normalize(input), "Einzeldurchlauf für " + input);
+    }
+
+    private static void assertMatchesStepwise(String input) {
+        assertEquals(ContentNormalizer.normalizeStepwise(input), ContentNormalizer.normalize(input), input);
+    }
+}
@@ -0,0 +1,34 @@
+package de.marienschule.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCompressionTest {
+
+    @Test
+    void acceptsGzipOrWildcard() {
+        assertTrue(ResponseCompression.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseCompression.acceptsGzip("x-gzip"));
+        assertTrue(ResponseCompression.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertTrue(ResponseCompression.acceptsGzip("*"));
+        assertTrue(ResponseCompression.acceptsGzip("identity;q=0.5, *;q=0.1"));
+    }
+
+    @Test
+    void rejectsMissingOrZeroQuality() {
+        assertFalse(ResponseCompression.acceptsGzip(null));
+        assertFalse(ResponseCompression.acceptsGzip("identity"));
+        assertFalse(ResponseCompression.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCompression.acceptsGzip("*;q=0"));
+        assertFalse(ResponseCompression.acceptsGzip("gzip;q=invalid"));
+    }
+
+    @Test
+    void explicitGzipWinsOverWildcard() {
+        assertFalse(ResponseCompression.acceptsGzip("gzip;q=0, *"));
+        assertFalse(ResponseCompression.acceptsGzip("*, gzip;q=0"));
+        assertTrue(ResponseCompression.acceptsGzip("gzip, *;q=0"));
+    }
+}
@@ -0,0 +1,61 @@
+package de.marienschule.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamCircuitBreakerTest {
+
+    // Schwelle 1 und 1 ms Wartezeit: ein Fehler öffnet, kurz danach ist der Schalter halb offen
+    private static UpstreamCircuitBreaker halfOpen() throws InterruptedException {
+        UpstreamCircuitBreaker breaker = new UpstreamCircuitBreaker(1, 1, 1, null);
+        breaker.recordFailure();
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, breaker.getState());
+        Thread.sleep(5);
+        return breaker;
+    }
+
+    @Test
+    void onlyOneProbeAtATime() throws Exception {
+        UpstreamCircuitBreaker breaker = halfOpen();
+        assertTrue(breaker.acquire());
+        assertEquals(UpstreamCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowsRequests());
+        assertThrows(UpstreamCircuitBreaker.OpenException.class, breaker::acquire);
+    }
+
+    @Test
+    void abortedProbeReleasesHalfOpenBreaker() throws Exception {
+        UpstreamCircuitBreaker breaker = halfOpen();
+        assertTrue(breaker.acquire());
+
+        // Antwort ließ sich nicht verarbeiten: weder Erfolg noch Fehler
+        breaker.release();
+
+        assertEquals(UpstreamCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.allowsRequests());
+        assertTrue(breaker.acquire());
+        breaker.recordSuccess();
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.acquire());
+    }
+
+    @Test
+    void failedProbeReopens() throws Exception {
+        UpstreamCircuitBreaker breaker = halfOpen();
+        assertTrue(breaker.acquire());
+        breaker.recordFailure();
+        assertEquals(UpstreamCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void releaseOutsideProbeChangesNothing() throws Exception {
+        UpstreamCircuitBreaker breaker = new UpstreamCircuitBreaker(3, 1000, 1000, null);
+        assertFalse(breaker.acquire());
+        breaker.release();
+        assertEquals(UpstreamCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}